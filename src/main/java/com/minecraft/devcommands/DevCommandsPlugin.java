@@ -1,25 +1,63 @@
 package com.minecraft.devcommands;
 
+import com.minecraft.devcommands.api.CircuitBreaker;
 import com.minecraft.devcommands.api.GitHubClient;
 import com.minecraft.devcommands.api.GitHubProjectsClient;
 import com.minecraft.devcommands.api.JiraClient;
+import com.minecraft.devcommands.api.JiraMirror;
+import com.minecraft.devcommands.api.LatencyTracker;
+import com.minecraft.devcommands.api.ResilienceInterceptor;
+import com.minecraft.devcommands.api.RetryPolicy;
+import com.minecraft.devcommands.api.ToolSelector;
 import com.minecraft.devcommands.api.VLLMClient;
+import com.minecraft.devcommands.cache.CodeSearchIndex;
+import com.minecraft.devcommands.cache.ContentCache;
+import com.minecraft.devcommands.cache.ResponseCache;
+import com.minecraft.devcommands.cache.SnapshotStore;
+import com.minecraft.devcommands.cache.StaleCache;
 import com.minecraft.devcommands.commands.*;
 import com.minecraft.devcommands.listeners.AutoOpListener;
+import com.minecraft.devcommands.listeners.RequestCancelListener;
 import com.minecraft.devcommands.utils.ChatHistory;
+import com.minecraft.devcommands.utils.ChatLog;
+import com.minecraft.devcommands.utils.IntentRouter;
+import com.minecraft.devcommands.utils.RequestTracker;
+import com.minecraft.devcommands.utils.ToolResultCompactor;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.UUID;
 
 public class DevCommandsPlugin extends JavaPlugin {
     private GitHubClient gitHubClient;
     private GitHubProjectsClient gitHubProjectsClient;
     private JiraClient jiraClient;
+    private JiraMirror jiraMirror;
+    private BukkitTask jiraMirrorTask;
     private VLLMClient vllmClient;
+    private ToolSelector toolSelector;
+    private IntentRouter intentRouter;
+    private ToolResultCompactor toolResultCompactor;
     private ChatHistory chatHistory;
+    private ContentCache contentCache;
+    private CodeSearchIndex codeSearchIndex;
+    private SnapshotStore snapshotStore;
     private Map<UUID, Long> commandCooldowns;
+    private RequestTracker requestTracker;
+    private StaleCache staleCache;
+    private LatencyTracker gitHubLatency;
+    private LatencyTracker gitHubGraphQLLatency;
+    private LatencyTracker jiraLatency;
+    private ResilienceInterceptor gitHubResilience;
+    private ResilienceInterceptor gitHubGraphQLResilience;
+    private ResilienceInterceptor jiraResilience;
 
     @Override
     public void onEnable() {
@@ -29,8 +67,17 @@ public class DevCommandsPlugin extends JavaPlugin {
         // Initialize cooldown tracker
         commandCooldowns = new HashMap<>();
 
+        // Track in-flight command work so it can be cancelled
+        requestTracker = new RequestTracker(this);
+
+        // Last good answers, served while a backend is down
+        initializeStaleCache();
+
         // Initialize chat history
-        chatHistory = new ChatHistory();
+        initializeChatHistory();
+
+        // Initialize file/explanation cache
+        initializeCache();
 
         // Initialize API clients
         initializeClients();
@@ -40,6 +87,7 @@ public class DevCommandsPlugin extends JavaPlugin {
 
         // Register listeners
         getServer().getPluginManager().registerEvents(new AutoOpListener(this), this);
+        getServer().getPluginManager().registerEvents(new RequestCancelListener(this), this);
 
         getLogger().info("DevCommandsPlugin enabled!");
         getLogger().info("GitHub repo: " + getConfig().getString("github.repository"));
@@ -50,6 +98,15 @@ public class DevCommandsPlugin extends JavaPlugin {
     @Override
     public void onDisable() {
         // Cleanup
+        if (requestTracker != null) {
+            requestTracker.cancelAll();
+        }
+        if (staleCache != null) {
+            staleCache.shutdown();
+        }
+        if (jiraMirrorTask != null) {
+            jiraMirrorTask.cancel();
+        }
         if (gitHubClient != null) {
             gitHubClient.shutdown();
         }
@@ -62,6 +119,15 @@ public class DevCommandsPlugin extends JavaPlugin {
         if (vllmClient != null) {
             vllmClient.shutdown();
         }
+        if (codeSearchIndex != null) {
+            codeSearchIndex.shutdown();
+        }
+        if (snapshotStore != null) {
+            snapshotStore.shutdown();
+        }
+        if (chatHistory != null) {
+            chatHistory.close();
+        }
 
         getLogger().info("DevCommandsPlugin disabled!");
     }
@@ -78,34 +144,303 @@ public class DevCommandsPlugin extends JavaPlugin {
         String jiraProject = getConfig().getString("jira.project-key", "");
 
         String vllmUrl = getConfig().getString("vllm.url", "http://localhost:8000");
+        List<String> vllmUrls = replicaUrls(vllmUrl, getConfig().getStringList("vllm.replicas"));
         String vllmModel = getConfig().getString("vllm.model", "gpt-3.5-turbo");
         String vllmApiToken = resolveConfigValue(getConfig().getString("vllm.api-token", ""));
         int vllmMaxTokens = getConfig().getInt("vllm.max-tokens", 2048);
         double vllmTemperature = getConfig().getDouble("vllm.temperature", 0.7);
         int vllmTimeout = getConfig().getInt("vllm.timeout", 30);
 
+        // Latency outlives the clients, which are rebuilt when the repository changes
+        gitHubLatency = createLatencyTracker("GitHub", "github", 2000, 30000);
+        gitHubGraphQLLatency = createLatencyTracker("GitHub GraphQL", "github", 2000, 30000);
+        jiraLatency = createLatencyTracker("Jira", "jira", 2000, 30000);
+        gitHubResilience = createResilience("GitHub", "github");
+        gitHubGraphQLResilience = createResilience("GitHub GraphQL", "github");
+        jiraResilience = createResilience("Jira", "jira");
+
         // Initialize clients
-        gitHubClient = new GitHubClient(githubToken, githubRepo, githubApiUrl, getLogger());
-        gitHubProjectsClient = new GitHubProjectsClient(githubToken, githubRepo, getLogger());
-        jiraClient = new JiraClient(jiraUrl, jiraEmail, jiraToken, jiraProject, getLogger());
-        vllmClient = new VLLMClient(vllmUrl, vllmModel, vllmMaxTokens, vllmTemperature, vllmTimeout, vllmApiToken, getLogger());
+        initializeSnapshot(githubRepo);
+        gitHubClient = new GitHubClient(githubToken, githubRepo, githubApiUrl, contentCache, snapshotStore,
+            gitHubLatency, gitHubResilience, getLogger());
+        gitHubProjectsClient = new GitHubProjectsClient(githubToken, githubRepo, gitHubGraphQLLatency,
+            gitHubGraphQLResilience, getLogger());
+        jiraClient = new JiraClient(jiraUrl, jiraEmail, jiraToken, jiraProject, jiraLatency, jiraResilience,
+            getLogger());
+        String systemPrompt = getConfig().getString("prompts.chat-system", VLLMClient.DEFAULT_SYSTEM_PROMPT);
+        vllmClient = new VLLMClient(vllmUrls, vllmModel, vllmMaxTokens, vllmTemperature, vllmTimeout, vllmApiToken,
+            systemPrompt, createResponseCache(), vllmLatencyTracker(VLLMClient.DEFAULT_PROFILE, vllmTimeout),
+            createVllmResilience(), getLogger());
+        configureModelProfiles(vllmUrls, vllmModel, vllmMaxTokens, vllmTemperature, vllmTimeout, vllmApiToken);
+        if (getConfig().getBoolean("vllm.hedging.enabled", false)) {
+            vllmClient.enableHedging(getConfig().getLong("vllm.hedging.min-delay-ms", 250));
+        }
+        if (getConfig().getBoolean("vllm.batching.enabled", false)) {
+            vllmClient.enableBatching(getConfig().getLong("vllm.batching.window-ms", 15),
+                getConfig().getInt("vllm.batching.max-batch", 16));
+        }
+        toolSelector = getConfig().getBoolean("vllm.tool-selection.enabled", true)
+            ? new ToolSelector(getConfig().getInt("vllm.tool-selection.top-k", 4))
+            : null;
+        intentRouter = getConfig().getBoolean("vllm.intent-router.enabled", true) ? new IntentRouter(jiraProject) : null;
+        toolResultCompactor = createToolResultCompactor();
+
+        initializeJiraMirror(jiraProject);
+
+        if (snapshotStore != null) {
+            snapshotStore.requestSync(gitHubClient);
+        }
+        initializeCodeSearch(githubRepo);
 
         if (getConfig().getBoolean("settings.debug", false)) {
             getLogger().info("Debug mode enabled");
         }
     }
 
+    /**
+     * Registers vllm.profiles.* (each inheriting unset values from the top-level
+     * vllm settings) and maps vllm.routing.* phases onto them.
+     */
+    private void configureModelProfiles(List<String> urls, String model, int maxTokens, double temperature, int timeout,
+                                        String apiToken) {
+        ConfigurationSection profiles = getConfig().getConfigurationSection("vllm.profiles");
+        if (profiles != null) {
+            for (String name : profiles.getKeys(false)) {
+                ConfigurationSection profile = profiles.getConfigurationSection(name);
+                if (profile == null || name.equals(VLLMClient.DEFAULT_PROFILE)) {
+                    continue;
+                }
+                int profileTimeout = profile.getInt("timeout", timeout);
+                vllmClient.addProfile(new VLLMClient.ModelProfile(
+                    name,
+                    profile.contains("url")
+                        ? replicaUrls(profile.getString("url"), profile.getStringList("replicas"))
+                        : urls,
+                    profile.getString("model", model),
+                    profile.getInt("max-tokens", maxTokens),
+                    profile.getDouble("temperature", temperature),
+                    profileTimeout,
+                    profile.contains("api-token") ? resolveConfigValue(profile.getString("api-token")) : apiToken
+                ), vllmLatencyTracker(name, profileTimeout));
+            }
+        }
+
+        for (VLLMClient.Phase phase : VLLMClient.Phase.values()) {
+            String key = "vllm.routing." + phase.name().toLowerCase();
+            vllmClient.route(phase, getConfig().getString(key, VLLMClient.DEFAULT_PROFILE));
+        }
+    }
+
+    /**
+     * Returns null when tool results should go back to the model as formatted text.
+     */
+    private ToolResultCompactor createToolResultCompactor() {
+        if (!getConfig().getBoolean("vllm.tool-results.compact", true)) {
+            return null;
+        }
+
+        Map<String, Integer> toolMaxTokens = new HashMap<>();
+        ConfigurationSection tools = getConfig().getConfigurationSection("vllm.tool-results.tool-max-tokens");
+        if (tools != null) {
+            for (String tool : tools.getKeys(false)) {
+                toolMaxTokens.put(tool, tools.getInt(tool));
+            }
+        }
+        return new ToolResultCompactor(
+            getConfig().getInt("vllm.tool-results.max-tokens", 800),
+            toolMaxTokens,
+            getConfig().getBoolean("vllm.tool-results.summarize", true),
+            getLogger()
+        );
+    }
+
+    /**
+     * Tracks one backend's latency and derives its timeouts, bounded by
+     * {@code timeouts.<backend>.*}. The maximums also apply until enough calls
+     * have been seen.
+     */
+    private LatencyTracker createLatencyTracker(String name, String backend, long minMillis, long maxMillis) {
+        String path = "timeouts." + backend + ".";
+        return new LatencyTracker(
+            name,
+            getConfig().getDouble("timeouts.factor", 3.0),
+            getConfig().getInt("timeouts.min-samples", 20),
+            getConfig().getLong(path + "min-first-byte-ms", minMillis),
+            getConfig().getLong(path + "max-first-byte-ms", maxMillis),
+            getConfig().getLong(path + "min-total-ms", minMillis),
+            getConfig().getLong(path + "max-total-ms", maxMillis * 2)
+        );
+    }
+
+    /**
+     * Each model profile tracks its own latency, bounded by
+     * {@code timeouts.vllm.<profile>.*}. The minimums fall back to
+     * {@code timeouts.vllm.*}; the maximums default to the profile's timeout,
+     * as it was before timeouts adapted.
+     */
+    private LatencyTracker vllmLatencyTracker(String profile, int timeoutSeconds) {
+        String path = "timeouts.vllm." + profile + ".";
+        long timeoutMillis = timeoutSeconds * 1000L;
+        return new LatencyTracker(
+            "vLLM " + profile,
+            getConfig().getDouble("timeouts.factor", 3.0),
+            getConfig().getInt("timeouts.min-samples", 20),
+            getConfig().getLong(path + "min-first-byte-ms", getConfig().getLong("timeouts.vllm.min-first-byte-ms", 10_000)),
+            getConfig().getLong(path + "max-first-byte-ms", timeoutMillis),
+            getConfig().getLong(path + "min-total-ms", getConfig().getLong("timeouts.vllm.min-total-ms", 10_000)),
+            getConfig().getLong(path + "max-total-ms", timeoutMillis)
+        );
+    }
+
+    /**
+     * Retries and a circuit breaker for one backend, configured by
+     * {@code resilience.*} with overrides under {@code resilience.<backend>.*}.
+     */
+    private ResilienceInterceptor createResilience(String name, String backend) {
+        return new ResilienceInterceptor(createCircuitBreaker(name, backend), createRetryPolicy(backend));
+    }
+
+    /**
+     * vLLM replicas fail independently, so each server gets its own breaker
+     * and an open one just sends requests to the next replica.
+     */
+    private ResilienceInterceptor createVllmResilience() {
+        Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+        return new ResilienceInterceptor(
+            url -> breakers.computeIfAbsent(url.host() + ":" + url.port(),
+                server -> createCircuitBreaker("vLLM " + server, "vllm")),
+            createRetryPolicy("vllm"));
+    }
+
+    private CircuitBreaker createCircuitBreaker(String name, String backend) {
+        String path = "resilience." + backend + ".";
+        return new CircuitBreaker(
+            name,
+            getConfig().getInt(path + "failure-threshold", getConfig().getInt("resilience.failure-threshold", 5)),
+            getConfig().getLong(path + "open-seconds", getConfig().getLong("resilience.open-seconds", 30)) * 1000,
+            getLogger()
+        );
+    }
+
+    private RetryPolicy createRetryPolicy(String backend) {
+        String path = "resilience." + backend + ".";
+        return new RetryPolicy(
+            getConfig().getInt(path + "max-attempts", getConfig().getInt("resilience.max-attempts", 3)),
+            getConfig().getLong(path + "base-delay-ms", getConfig().getLong("resilience.base-delay-ms", 200)),
+            getConfig().getLong(path + "max-delay-ms", getConfig().getLong("resilience.max-delay-ms", 2000))
+        );
+    }
+
+    /**
+     * The primary URL followed by any extra replicas serving the same model.
+     */
+    private static List<String> replicaUrls(String url, List<String> replicas) {
+        List<String> urls = new ArrayList<>();
+        urls.add(url);
+        for (String replica : replicas) {
+            if (!replica.isBlank() && !urls.contains(replica)) {
+                urls.add(replica);
+            }
+        }
+        return urls;
+    }
+
+    private ResponseCache createResponseCache() {
+        if (!getConfig().getBoolean("vllm.response-cache.enabled", false)) {
+            return null;
+        }
+
+        long ttlMillis = getConfig().getLong("vllm.response-cache.ttl-seconds", 300) * 1000;
+        int maxEntries = getConfig().getInt("vllm.response-cache.max-entries", 500);
+        boolean bypassSampling = getConfig().getBoolean("vllm.response-cache.bypass-nonzero-temperature", false);
+        return new ResponseCache(ttlMillis, maxEntries, bypassSampling);
+    }
+
+    private void initializeStaleCache() {
+        int maxEntries = getConfig().getBoolean("degraded.enabled", true)
+            ? getConfig().getInt("degraded.max-entries", 200)
+            : 0;
+        staleCache = new StaleCache(
+            maxEntries,
+            getConfig().getLong("degraded.revalidate-seconds", 30) * 1000,
+            getConfig().getLong("degraded.max-age-hours", 24) * 3600 * 1000,
+            getLogger()
+        );
+    }
+
+    private void initializeChatHistory() {
+        int searchEntries = getConfig().getInt("history.search-entries", 1000);
+        if (!getConfig().getBoolean("history.persist", true)) {
+            chatHistory = new ChatHistory(null, searchEntries);
+            return;
+        }
+
+        long maxBytes = getConfig().getLong("history.max-mb", 64) * 1024 * 1024;
+        chatHistory = new ChatHistory(new ChatLog(new File(getDataFolder(), "history"), maxBytes, getLogger()), searchEntries);
+    }
+
+    private void initializeCache() {
+        if (!getConfig().getBoolean("cache.enabled", true)) {
+            return;
+        }
+
+        long memoryBytes = getConfig().getLong("cache.memory-mb", 16) * 1024 * 1024;
+        long diskBytes = getConfig().getLong("cache.disk-mb", 128) * 1024 * 1024;
+        contentCache = new ContentCache(new File(getDataFolder(), "cache"), memoryBytes, diskBytes, getLogger());
+    }
+
+    private void initializeJiraMirror(String projectKey) {
+        if (!getConfig().getBoolean("jira.mirror.enabled", false) || projectKey.isEmpty()) {
+            return;
+        }
+
+        jiraMirror = new JiraMirror(jiraClient, projectKey, getLogger());
+        jiraClient.attachMirror(jiraMirror);
+
+        long periodTicks = Math.max(1, getConfig().getLong("jira.mirror.sync-seconds", 60)) * 20L;
+        jiraMirrorTask = getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+            try {
+                jiraMirror.sync();
+            } catch (Exception e) {
+                getLogger().warning("Jira mirror sync failed: " + e.getMessage());
+            }
+        }, 0L, periodTicks);
+    }
+
+    private void initializeSnapshot(String repository) {
+        if (!getConfig().getStringList("snapshot.repositories").contains(repository)) {
+            return;
+        }
+
+        long maxFileBytes = getConfig().getLong("snapshot.max-file-kb", 1024) * 1024;
+        long maxPackBytes = getConfig().getLong("snapshot.max-mb", 512) * 1024 * 1024;
+        snapshotStore = new SnapshotStore(new File(getDataFolder(), "snapshots"), repository, maxFileBytes, maxPackBytes, getLogger());
+    }
+
+    private void initializeCodeSearch(String repository) {
+        if (!getConfig().getBoolean("search.local-index", false) || !repository.contains("/")) {
+            return;
+        }
+
+        long maxFileBytes = getConfig().getLong("search.max-file-kb", 256) * 1024;
+        codeSearchIndex = new CodeSearchIndex(new File(getDataFolder(), "search"), repository, maxFileBytes, getLogger());
+        codeSearchIndex.requestRefresh(gitHubClient);
+    }
+
     private void registerCommands() {
         // Git command (handles pr-list, pr-review, kanban, repo, etc.)
         GitCommand gitCommand = new GitCommand(this);
         getCommand("git").setExecutor(gitCommand);
         getCommand("git").setTabCompleter(gitCommand);
+        getServer().getPluginManager().registerEvents(gitCommand.getKanbanViewCommand(), this);
 
         // AI commands
         AIChatCommand aiChatCommand = new AIChatCommand(this);
         getCommand("ai-chat").setExecutor(aiChatCommand);
         getCommand("ai-chat").setTabCompleter(aiChatCommand);
-        getCommand("code-explain").setExecutor(new CodeExplainCommand(this));
+        CodeExplainCommand codeExplainCommand = new CodeExplainCommand(this);
+        getCommand("code-explain").setExecutor(codeExplainCommand);
+        getCommand("code-explain").setTabCompleter(codeExplainCommand);
 
         // Jira commands
         getCommand("jira-create").setExecutor(new JiraCreateCommand(this));
@@ -139,10 +474,55 @@ public class DevCommandsPlugin extends JavaPlugin {
         return vllmClient;
     }
 
+    /**
+     * Returns null when tool selection is disabled and every chat gets all tools.
+     */
+    public ToolSelector getToolSelector() {
+        return toolSelector;
+    }
+
+    /**
+     * Returns null when every /ai-chat message should go to the model.
+     */
+    public IntentRouter getIntentRouter() {
+        return intentRouter;
+    }
+
+    /**
+     * Returns null when tool results go back to the model uncompacted.
+     */
+    public ToolResultCompactor getToolResultCompactor() {
+        return toolResultCompactor;
+    }
+
+    public RequestTracker getRequestTracker() {
+        return requestTracker;
+    }
+
+    public StaleCache getStaleCache() {
+        return staleCache;
+    }
+
+    public JiraMirror getJiraMirror() {
+        return jiraMirror;
+    }
+
     public ChatHistory getChatHistory() {
         return chatHistory;
     }
 
+    public ContentCache getContentCache() {
+        return contentCache;
+    }
+
+    public CodeSearchIndex getCodeSearchIndex() {
+        return codeSearchIndex;
+    }
+
+    public SnapshotStore getSnapshotStore() {
+        return snapshotStore;
+    }
+
     public boolean checkCooldown(UUID playerId) {
         int cooldown = getConfig().getInt("settings.command-cooldown", 5);
         if (cooldown <= 0) return true;
@@ -172,8 +552,26 @@ public class DevCommandsPlugin extends JavaPlugin {
         String githubRepo = getConfig().getString("github.repository", "");
         String githubApiUrl = getConfig().getString("github.api-url", "https://api.github.com");
 
-        gitHubClient = new GitHubClient(githubToken, githubRepo, githubApiUrl, getLogger());
-        gitHubProjectsClient = new GitHubProjectsClient(githubToken, githubRepo, getLogger());
+        // The local snapshot and search index follow the repository
+        if (snapshotStore != null) {
+            snapshotStore.shutdown();
+            snapshotStore = null;
+        }
+        initializeSnapshot(githubRepo);
+
+        gitHubClient = new GitHubClient(githubToken, githubRepo, githubApiUrl, contentCache, snapshotStore,
+            gitHubLatency, gitHubResilience, getLogger());
+        gitHubProjectsClient = new GitHubProjectsClient(githubToken, githubRepo, gitHubGraphQLLatency,
+            gitHubGraphQLResilience, getLogger());
+
+        if (snapshotStore != null) {
+            snapshotStore.requestSync(gitHubClient);
+        }
+        if (codeSearchIndex != null) {
+            codeSearchIndex.shutdown();
+            codeSearchIndex = null;
+        }
+        initializeCodeSearch(githubRepo);
 
         getLogger().info("GitHub clients reinitialized with repo: " + githubRepo);
     }
@@ -0,0 +1,45 @@
+package com.minecraft.devcommands.api;
+
+import com.minecraft.devcommands.utils.CancellationToken;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+
+/**
+ * Ties each HTTP call to the cancellation token of the command that made it.
+ * Cancelling the token cancels the call, which closes the connection; vLLM
+ * aborts a generation as soon as its client goes away.
+ */
+public class CancellationInterceptor implements Interceptor {
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        CancellationToken token = CancellationToken.current();
+        if (token != null) {
+            Call call = chain.call();
+            // Stays registered while the body is read; cancelling a finished call is a no-op
+            token.onCancel(call::cancel);
+        }
+        return chain.proceed(chain.request());
+    }
+
+    /**
+     * Whether {@code call} failed because someone cancelled it. OkHttp also
+     * cancels a call whose call timeout expires, but fails it with "timeout",
+     * and that says the backend is slow rather than that nobody is waiting.
+     */
+    public static boolean wasCancelled(Call call, IOException e) {
+        return call.isCanceled() && !isTimeout(e);
+    }
+
+    /**
+     * A read, write or whole-call timeout.
+     */
+    public static boolean isTimeout(IOException e) {
+        return e instanceof SocketTimeoutException
+            || (e instanceof InterruptedIOException && "timeout".equals(e.getMessage()));
+    }
+}
@@ -0,0 +1,107 @@
+package com.minecraft.devcommands.api;
+
+import java.util.logging.Logger;
+
+/**
+ * Stops calling a backend that keeps failing. After enough failures in a row
+ * the breaker opens and requests fail at once with a
+ * {@link CircuitOpenException}; once the open period is over a single probe is
+ * let through, and its outcome either closes the breaker or opens it again.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Logger logger;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probing;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis, Logger logger) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.logger = logger;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && retryInMillis() == 0) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Whether a request may go out now. While half open only one request at a
+     * time is allowed; it must end in {@link #recordSuccess},
+     * {@link #recordFailure} or {@link #release}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (retryInMillis() > 0) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probing = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probing) {
+                return false;
+            }
+            probing = true;
+        }
+        return true;
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info(name + " is reachable again, circuit closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probing = false;
+    }
+
+    public synchronized void recordFailure() {
+        probing = false;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                logger.warning(name + " is failing, circuit open for " + openMillis / 1000 + "s");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * For a request that ended without saying anything about the backend,
+     * such as one the player cancelled.
+     */
+    public synchronized void release() {
+        probing = false;
+    }
+
+    /**
+     * How long until the next probe may go out; 0 unless the breaker is open.
+     */
+    public synchronized long retryInMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, openedAt + openMillis - System.currentTimeMillis());
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + ": " + getState().name().toLowerCase();
+    }
+}
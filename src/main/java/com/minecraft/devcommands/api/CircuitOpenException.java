@@ -0,0 +1,26 @@
+package com.minecraft.devcommands.api;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of calling a backend whose circuit breaker is open.
+ */
+public class CircuitOpenException extends IOException {
+    private final String backend;
+    private final long retryInMillis;
+
+    public CircuitOpenException(CircuitBreaker breaker) {
+        super(breaker.getName() + " is unavailable, not retrying for "
+            + Math.max(1, (breaker.retryInMillis() + 999) / 1000) + "s");
+        this.backend = breaker.getName();
+        this.retryInMillis = breaker.retryInMillis();
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public long getRetryInMillis() {
+        return retryInMillis;
+    }
+}
@@ -0,0 +1,144 @@
+package com.minecraft.devcommands.api;
+
+import com.minecraft.devcommands.utils.CancellationToken;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Groups completion prompts that arrive within a few milliseconds of each
+ * other, and share a model and sampling settings, into one request with a
+ * prompt array. The first caller of a batch holds it open for the window and
+ * sends it on its own thread; the others wait for their slot of the result.
+ */
+public class CompletionBatcher {
+    /**
+     * Sends one batch and returns the completions in prompt order.
+     */
+    @FunctionalInterface
+    public interface BatchSender {
+        List<String> send(List<String> prompts) throws IOException;
+    }
+
+    private final long windowMillis;
+    private final int maxBatch;
+    private final Map<Object, Batch> open = new HashMap<>();
+
+    public CompletionBatcher(long windowMillis, int maxBatch) {
+        this.windowMillis = windowMillis;
+        this.maxBatch = Math.max(1, maxBatch);
+    }
+
+    /**
+     * Completes {@code prompt} as part of the open batch for {@code key},
+     * starting one if there is none. Prompts under the same key must be safe
+     * to send in one request.
+     */
+    public String submit(Object key, String prompt, BatchSender sender) throws IOException {
+        Batch batch;
+        int slot;
+        boolean leader = false;
+        synchronized (this) {
+            batch = open.get(key);
+            if (batch == null) {
+                batch = new Batch();
+                open.put(key, batch);
+                leader = true;
+            }
+            slot = batch.prompts.size();
+            batch.prompts.add(prompt);
+            batch.live++;
+            if (batch.prompts.size() >= maxBatch) {
+                open.remove(key);
+                notifyAll();
+            }
+        }
+
+        CompletableFuture<String> result = batch.result.thenApply(completions -> completions.get(slot));
+        CancellationToken token = CancellationToken.current();
+        if (token != null) {
+            Batch joined = batch;
+            token.onCancel(() -> {
+                result.cancel(false);
+                leave(key, joined);
+            });
+        }
+
+        if (leader) {
+            collect(key, batch);
+            send(batch, sender);
+        }
+
+        try {
+            return result.get();
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("Request cancelled");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a batched completion");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    private void leave(Object key, Batch batch) {
+        boolean abandoned;
+        synchronized (this) {
+            abandoned = --batch.live == 0;
+            if (abandoned) {
+                // Late arrivals start a fresh batch
+                open.remove(key, batch);
+                notifyAll();
+            }
+        }
+        // Nobody is waiting any more: stop the request
+        if (abandoned) {
+            batch.token.cancel();
+        }
+    }
+
+    private synchronized void collect(Object key, Batch batch) {
+        long deadline = System.currentTimeMillis() + windowMillis;
+        long remaining;
+        while (open.get(key) == batch && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        open.remove(key, batch);
+    }
+
+    private void send(Batch batch, BatchSender sender) {
+        // Under the batch's own token, so one caller giving up doesn't cancel it for the rest
+        batch.token.run(() -> {
+            try {
+                List<String> completions = sender.send(batch.prompts);
+                if (completions.size() != batch.prompts.size()) {
+                    throw new IOException("Expected " + batch.prompts.size() + " completions, got " + completions.size());
+                }
+                batch.result.complete(completions);
+            } catch (IOException | RuntimeException e) {
+                batch.result.completeExceptionally(e);
+            }
+        });
+    }
+
+    private static class Batch {
+        final List<String> prompts = new ArrayList<>();
+        final CompletableFuture<List<String>> result = new CompletableFuture<>();
+        final CancellationToken token = new CancellationToken();
+        // Callers still waiting, guarded by the batcher's lock
+        int live;
+    }
+}
@@ -0,0 +1,120 @@
+package com.minecraft.devcommands.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Replicas serving the same model. Each request goes to the endpoint with the
+ * fewest requests in flight, weighted by a health score that drops on
+ * failures, and an endpoint that keeps failing is left out for a while. The
+ * latencies of successful requests give the hedging delay.
+ */
+public class EndpointPool {
+    private static final int EJECT_AFTER_FAILURES = 3;
+    private static final long EJECT_MILLIS = 30_000;
+    // Weight of the newest outcome in the health score
+    private static final double HEALTH_DECAY = 0.2;
+    private static final double MIN_HEALTH = 0.05;
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final double HEDGE_PERCENTILE = 95;
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final LatencyWindow latencies = new LatencyWindow(256);
+
+    public EndpointPool(List<String> urls) {
+        for (String url : urls) {
+            endpoints.add(new Endpoint(url));
+        }
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return Collections.unmodifiableList(endpoints);
+    }
+
+    /**
+     * Picks the least loaded endpoint not in {@code exclude} and counts the
+     * request against it, or returns null if every endpoint is excluded.
+     * Ejected endpoints are only used when nothing else is left.
+     */
+    public synchronized Endpoint acquire(Collection<Endpoint> exclude) {
+        long now = System.currentTimeMillis();
+        Endpoint best = null;
+        double bestLoad = 0;
+        boolean bestEjected = true;
+        for (Endpoint endpoint : endpoints) {
+            if (exclude.contains(endpoint)) {
+                continue;
+            }
+            boolean ejected = endpoint.ejectedUntil > now;
+            double load = (endpoint.outstanding + 1) / Math.max(MIN_HEALTH, endpoint.health);
+            if (best == null || (bestEjected && !ejected) || (bestEjected == ejected && load < bestLoad)) {
+                best = endpoint;
+                bestLoad = load;
+                bestEjected = ejected;
+            }
+        }
+        if (best != null) {
+            best.outstanding++;
+        }
+        return best;
+    }
+
+    public synchronized void succeeded(Endpoint endpoint, long millis) {
+        endpoint.outstanding--;
+        endpoint.consecutiveFailures = 0;
+        endpoint.ejectedUntil = 0;
+        endpoint.health += (1 - endpoint.health) * HEALTH_DECAY;
+        latencies.record(millis);
+    }
+
+    public synchronized void failed(Endpoint endpoint) {
+        endpoint.outstanding--;
+        endpoint.health -= endpoint.health * HEALTH_DECAY;
+        if (++endpoint.consecutiveFailures >= EJECT_AFTER_FAILURES) {
+            endpoint.ejectedUntil = System.currentTimeMillis() + EJECT_MILLIS;
+        }
+    }
+
+    /**
+     * For requests that ended without saying anything about the endpoint,
+     * such as a hedge that lost or a player who gave up.
+     */
+    public synchronized void abandoned(Endpoint endpoint) {
+        endpoint.outstanding--;
+    }
+
+    /**
+     * How long to wait on one endpoint before hedging to another: the recent
+     * p95 latency, but at least {@code minMillis}. Returns -1 until there are
+     * enough samples to say what slow means.
+     */
+    public long hedgeDelayMillis(long minMillis) {
+        if (latencies.count() < MIN_HEDGE_SAMPLES) {
+            return -1;
+        }
+        return Math.max(minMillis, latencies.percentile(HEDGE_PERCENTILE));
+    }
+
+    public static class Endpoint {
+        public final String url;
+        private int outstanding;
+        private int consecutiveFailures;
+        private long ejectedUntil;
+        private double health = 1.0;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+        @Override
+        public String toString() {
+            return url;
+        }
+    }
+}
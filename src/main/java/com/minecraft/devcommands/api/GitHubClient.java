@@ -3,33 +3,61 @@ package com.minecraft.devcommands.api;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.minecraft.devcommands.cache.ContentCache;
+import com.minecraft.devcommands.cache.RepoTreeIndex;
+import com.minecraft.devcommands.cache.SnapshotStore;
+import com.minecraft.devcommands.cache.TarReader;
 import okhttp3.*;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class GitHubClient {
+    // How long a resolved HEAD SHA is trusted before asking GitHub again
+    private static final long HEAD_TTL_MS = 30_000;
+
     private final OkHttpClient client;
+    // Tarballs and blobs: no call deadline, and kept out of the latency samples
+    private final OkHttpClient bulkClient;
+    private final LatencyTracker latency;
     private final String token;
     private final String repository;
     private final String apiUrl;
     private final Gson gson;
     private final Logger logger;
+    private final ContentCache contentCache;
+    private final SnapshotStore snapshotStore;
+
+    private String headSha;
+    private long headCheckedAt;
+    private volatile RepoTreeIndex treeIndex;
 
-    public GitHubClient(String token, String repository, String apiUrl, Logger logger) {
+    public GitHubClient(String token, String repository, String apiUrl, ContentCache contentCache,
+                        SnapshotStore snapshotStore, LatencyTracker latency, ResilienceInterceptor resilience,
+                        Logger logger) {
         this.token = token;
         this.repository = repository;
         this.apiUrl = apiUrl;
+        this.contentCache = contentCache;
+        this.snapshotStore = snapshotStore;
         this.logger = logger;
+        this.latency = latency;
         this.gson = new Gson();
 
         this.client = new OkHttpClient.Builder()
             .connectTimeout(10, TimeUnit.SECONDS)
             .readTimeout(30, TimeUnit.SECONDS)
+            .addInterceptor(new CancellationInterceptor())
+            .addInterceptor(resilience)
+            .eventListenerFactory(latency.listenerFactory())
+            .build();
+        this.bulkClient = client.newBuilder()
+            .eventListener(EventListener.NONE)
             .build();
     }
 
@@ -42,7 +70,7 @@ public class GitHubClient {
             .header("Accept", "application/vnd.github.v3+json")
             .build();
 
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = http().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Failed to fetch PR: " + response.code() + " " + response.message());
             }
@@ -72,7 +100,7 @@ public class GitHubClient {
             .header("Accept", "application/vnd.github.v3+json")
             .build();
 
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = http().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Failed to list PRs: " + response.code() + " " + response.message());
             }
@@ -98,7 +126,7 @@ public class GitHubClient {
             .header("Accept", "application/vnd.github.v3.diff")
             .build();
 
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = http().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Failed to fetch diff: " + response.code() + " " + response.message());
             }
@@ -107,6 +135,216 @@ public class GitHubClient {
         }
     }
 
+    /**
+     * Fetches a file from the default branch. The path is checked against the tree
+     * index first; unchanged files are then served by blob SHA from the content
+     * cache or the local repository snapshot, and only misses go to the network.
+     */
+    public RepoFile getFile(String path) throws IOException {
+        path = normalizePath(path);
+
+        RepoTreeIndex index = null;
+        try {
+            index = getTreeIndex();
+        } catch (IOException e) {
+            logger.warning("Could not load tree index for " + repository + ": " + e.getMessage());
+        }
+
+        RepoTreeIndex.Node node = index != null ? index.findFile(path) : null;
+        if (node == null && index != null && !index.isTruncated()) {
+            throw new IOException(notFoundMessage("File", path, index));
+        }
+
+        String sha = node != null ? node.getSha() : null;
+        if (sha == null) {
+            return new RepoFile(path, null, fetchContents(path));
+        }
+
+        String content = contentCache != null ? contentCache.getString(sha) : null;
+        if (content == null && snapshotStore != null) {
+            if (!snapshotStore.isCurrent(index.getCommit())) {
+                snapshotStore.requestSync(this);
+            }
+            content = snapshotStore.readString(sha);
+        }
+        if (content == null) {
+            content = fetchBlob(sha);
+            if (contentCache != null) {
+                contentCache.putString(sha, content);
+            }
+        }
+        return new RepoFile(path, sha, content);
+    }
+
+    /**
+     * Returns the path index for the current default branch head, rebuilding it
+     * with one recursive tree fetch whenever the head has moved.
+     */
+    public synchronized RepoTreeIndex getTreeIndex() throws IOException {
+        String commit = getHeadSha();
+        RepoTreeIndex index = treeIndex;
+        if (index == null || !index.getCommit().equals(commit)) {
+            index = fetchTreeIndex(commit);
+            treeIndex = index;
+            logger.info(String.format("Indexed %d files in %s @ %s%s", index.getFileCount(), repository,
+                commit.substring(0, Math.min(7, commit.length())), index.isTruncated() ? " (truncated)" : ""));
+        }
+        return index;
+    }
+
+    /**
+     * Returns the last built tree index without touching the network, or null.
+     * Safe to call from the main thread (e.g. for tab completion).
+     */
+    public RepoTreeIndex getCachedTreeIndex() {
+        return treeIndex;
+    }
+
+    /**
+     * Builds an error message for a missing path, with close matches from the index.
+     */
+    public static String notFoundMessage(String kind, String path, RepoTreeIndex index) {
+        StringBuilder message = new StringBuilder(kind + " not found: /" + path);
+        List<String> suggestions = index.complete(path, 3);
+        if (!suggestions.isEmpty()) {
+            message.append(". Did you mean: ").append(String.join(", ", suggestions)).append("?");
+        }
+        return message.toString();
+    }
+
+    /**
+     * Resolves the commit SHA of the default branch. The lookup returns only the
+     * SHA and is remembered for a short while, so it is cheap to call per request.
+     */
+    public synchronized String getHeadSha() throws IOException {
+        long now = System.currentTimeMillis();
+        if (headSha != null && now - headCheckedAt < HEAD_TTL_MS) {
+            return headSha;
+        }
+
+        String url = String.format("%s/repos/%s/commits/HEAD", apiUrl, repository);
+
+        Request request = new Request.Builder()
+            .url(url)
+            .header("Authorization", "Bearer " + token)
+            .header("Accept", "application/vnd.github.sha")
+            .build();
+
+        try (Response response = http().newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to resolve HEAD: " + response.code() + " " + response.message());
+            }
+
+            headSha = response.body().string().trim();
+            headCheckedAt = now;
+            return headSha;
+        }
+    }
+
+    private RepoTreeIndex fetchTreeIndex(String commit) throws IOException {
+        String url = String.format("%s/repos/%s/git/trees/%s?recursive=1", apiUrl, repository, commit);
+
+        Request request = new Request.Builder()
+            .url(url)
+            .header("Authorization", "Bearer " + token)
+            .header("Accept", "application/vnd.github.v3+json")
+            .build();
+
+        try (Response response = http().newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to fetch tree: " + response.code() + " " + response.message());
+            }
+
+            String body = response.body().string();
+            return RepoTreeIndex.fromTree(commit, gson.fromJson(body, JsonObject.class));
+        }
+    }
+
+    /**
+     * Streams every file of a commit from the tarball endpoint (one request for
+     * the whole repository). Files larger than {@code maxFileBytes} are reported
+     * without their data.
+     */
+    public void downloadTarball(String commit, long maxFileBytes, TarReader.EntryHandler handler) throws IOException {
+        String url = String.format("%s/repos/%s/tarball/%s", apiUrl, repository, commit);
+
+        Request request = new Request.Builder()
+            .url(url)
+            .header("Authorization", "Bearer " + token)
+            .header("Accept", "application/vnd.github.v3+json")
+            .build();
+
+        try (Response response = bulkClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to download tarball: " + response.code() + " " + response.message());
+            }
+
+            TarReader.readGzip(response.body().byteStream(), maxFileBytes, handler);
+        }
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    /**
+     * Fetches the raw bytes of a blob by SHA.
+     */
+    public byte[] fetchBlobBytes(String sha) throws IOException {
+        String url = String.format("%s/repos/%s/git/blobs/%s", apiUrl, repository, sha);
+
+        Request request = new Request.Builder()
+            .url(url)
+            .header("Authorization", "Bearer " + token)
+            .header("Accept", "application/vnd.github.raw+json")
+            .build();
+
+        try (Response response = bulkClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to fetch file: " + response.code() + " " + response.message());
+            }
+
+            return response.body().bytes();
+        }
+    }
+
+    private String fetchBlob(String sha) throws IOException {
+        return new String(fetchBlobBytes(sha), StandardCharsets.UTF_8);
+    }
+
+    private String fetchContents(String path) throws IOException {
+        String url = String.format("%s/repos/%s/contents/%s", apiUrl, repository, path);
+
+        Request request = new Request.Builder()
+            .url(url)
+            .header("Authorization", "Bearer " + token)
+            .header("Accept", "application/vnd.github.v3.raw")
+            .build();
+
+        try (Response response = http().newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to fetch file: " + response.code() + " " + response.message());
+            }
+
+            return response.body().string();
+        }
+    }
+
+    public static String normalizePath(String path) {
+        path = path.trim();
+        while (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
     private PullRequest parsePullRequest(JsonObject json) {
         PullRequest pr = new PullRequest();
         pr.number = json.get("number").getAsInt();
@@ -125,6 +363,21 @@ public class GitHubClient {
         return pr;
     }
 
+    /**
+     * The client with timeouts fitted to GitHub's recent latency.
+     */
+    private OkHttpClient http() {
+        return latency.adapt(client);
+    }
+
+    /**
+     * For other code calling the GitHub REST API, so it shares this client's
+     * connections, cancellation and adaptive timeouts.
+     */
+    public OkHttpClient getHttpClient() {
+        return http();
+    }
+
     public void shutdown() {
         client.dispatcher().executorService().shutdown();
         client.connectionPool().evictAll();
@@ -146,4 +399,16 @@ public class GitHubClient {
                 number, title, author, branch, state);
         }
     }
+
+    public static class RepoFile {
+        public final String path;
+        public final String sha;
+        public final String content;
+
+        public RepoFile(String path, String sha, String content) {
+            this.path = path;
+            this.sha = sha;
+            this.content = content;
+        }
+    }
 }
@@ -6,7 +6,14 @@ import com.google.gson.JsonObject;
 import okhttp3.*;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -14,16 +21,91 @@ import java.util.logging.Logger;
  * Client for GitHub Projects (Kanban boards) using GraphQL API
  */
 public class GitHubProjectsClient {
+    // Snapshots younger than this are served without a background refresh
+    private static final long REVALIDATE_AFTER_MS = 5_000;
+    // While refreshes fail, the last snapshot is served and GitHub is only retried this often
+    private static final long FAILED_REVALIDATE_AFTER_MS = 30_000;
+
+    private static final String ITEM_FIELDS = """
+            items(first: 100, after: $cursor) {
+              pageInfo {
+                hasNextPage
+                endCursor
+              }
+              nodes {
+                id
+                content {
+                  ... on Issue {
+                    number
+                    title
+                    state
+                    url
+                  }
+                }
+                fieldValueByName(name: "Status") {
+                  ... on ProjectV2ItemFieldSingleSelectValue {
+                    optionId
+                  }
+                }
+              }
+            }
+            """;
+
+    private static final String ITEMS_BY_NUMBER_QUERY = """
+            query($owner: String!, $name: String!, $number: Int!, $cursor: String) {
+              repository(owner: $owner, name: $name) {
+                projectV2(number: $number) {
+                  id
+                  title
+                  field(name: "Status") {
+                    ... on ProjectV2SingleSelectField {
+                      options {
+                        id
+                        name
+                      }
+                    }
+                  }
+            """ + ITEM_FIELDS + """
+                }
+              }
+            }
+            """;
+
+    private static final String ITEMS_BY_ID_QUERY = """
+            query($id: ID!, $cursor: String) {
+              node(id: $id) {
+                ... on ProjectV2 {
+                  id
+                  title
+            """ + ITEM_FIELDS + """
+                }
+              }
+            }
+            """;
+
     private final OkHttpClient httpClient;
+    private final LatencyTracker latency;
     private final String token;
     private final String owner;
     private final String repo;
     private final Gson gson;
     private final Logger logger;
 
-    public GitHubProjectsClient(String token, String repository, Logger logger) {
+    // Project number -> ID, title and Status options, learned from the first fetch
+    private final Map<Integer, ProjectMeta> projectMeta = new ConcurrentHashMap<>();
+
+    // Latest board snapshot per project number, refreshed in the background
+    private final Map<Integer, ProjectBoard> boards = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> checkedAt = new ConcurrentHashMap<>();
+    private final Set<Integer> refreshing = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Long> failedAt = new ConcurrentHashMap<>();
+    private final ExecutorService refresher;
+
+    public GitHubProjectsClient(String token, String repository, LatencyTracker latency,
+                                ResilienceInterceptor resilience, Logger logger) {
         this.token = token;
         this.logger = logger;
+        this.latency = latency;
         this.gson = new Gson();
 
         // Parse owner/repo
@@ -34,14 +116,27 @@ public class GitHubProjectsClient {
         this.httpClient = new OkHttpClient.Builder()
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
+                .addInterceptor(new CancellationInterceptor())
+                .addInterceptor(resilience)
+                .eventListenerFactory(latency.listenerFactory())
                 .build();
+
+        this.refresher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "DevCommands-Projects");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public List<Project> listProjects() throws IOException {
-        String query = String.format("""
-            {
-              repository(owner: "%s", name: "%s") {
-                projectsV2(first: 10) {
+        String query = """
+            query($owner: String!, $name: String!, $cursor: String) {
+              repository(owner: $owner, name: $name) {
+                projectsV2(first: 100, after: $cursor) {
+                  pageInfo {
+                    hasNextPage
+                    endCursor
+                  }
                   nodes {
                     id
                     number
@@ -51,139 +146,258 @@ public class GitHubProjectsClient {
                 }
               }
             }
-            """, owner, repo);
-
-        JsonObject response = executeGraphQL(query);
-        JsonArray projects = response.getAsJsonObject("data")
-                .getAsJsonObject("repository")
-                .getAsJsonObject("projectsV2")
-                .getAsJsonArray("nodes");
+            """;
 
         List<Project> result = new ArrayList<>();
-        for (int i = 0; i < projects.size(); i++) {
-            JsonObject proj = projects.get(i).getAsJsonObject();
-            result.add(new Project(
-                proj.get("id").getAsString(),
-                proj.get("number").getAsInt(),
-                proj.get("title").getAsString(),
-                proj.get("url").getAsString()
-            ));
-        }
+        String cursor = null;
+        do {
+            JsonObject variables = repositoryVariables();
+            variables.addProperty("cursor", cursor);
+
+            JsonObject response = executeGraphQL(query, variables);
+            JsonObject projectsV2 = response.getAsJsonObject("data")
+                    .getAsJsonObject("repository")
+                    .getAsJsonObject("projectsV2");
+            JsonArray projects = projectsV2.getAsJsonArray("nodes");
+
+            for (int i = 0; i < projects.size(); i++) {
+                JsonObject proj = projects.get(i).getAsJsonObject();
+                Project project = new Project(
+                    proj.get("id").getAsString(),
+                    proj.get("number").getAsInt(),
+                    proj.get("title").getAsString(),
+                    proj.get("url").getAsString()
+                );
+                result.add(project);
+                projectMeta.computeIfAbsent(project.number, n -> new ProjectMeta(project.id, project.title));
+            }
+
+            cursor = nextCursor(projectsV2);
+        } while (cursor != null);
+
         return result;
     }
 
     public ProjectBoard getProjectBoard(int projectNumber) throws IOException {
-        // First, get the project ID
-        String projectIdQuery = String.format("""
-            {
-              repository(owner: "%s", name: "%s") {
-                projectsV2(first: 10) {
-                  nodes {
-                    id
-                    number
-                    title
-                  }
+        List<ProjectItem> projectItems = new ArrayList<>();
+        String title = streamProjectItems(projectNumber, projectItems::addAll);
+        return new ProjectBoard(projectNumber, title, projectItems);
+    }
+
+    /**
+     * Returns the latest board snapshot straight away and refreshes it in the
+     * background if it is more than a few seconds old. Only the first call for
+     * a project waits for the network.
+     */
+    public ProjectBoard getBoardSnapshot(int projectNumber) throws IOException {
+        ProjectBoard board = boards.get(projectNumber);
+        if (board == null) {
+            return refreshBoard(projectNumber);
+        }
+
+        long now = System.currentTimeMillis();
+        Long failed = failedAt.get(projectNumber);
+        boolean due = failed != null
+            ? now - failed > FAILED_REVALIDATE_AFTER_MS
+            : now - checkedAt.getOrDefault(projectNumber, 0L) > REVALIDATE_AFTER_MS;
+        if (due && refreshing.add(projectNumber)) {
+            refresher.execute(() -> {
+                try {
+                    refreshBoard(projectNumber);
+                } catch (IOException e) {
+                    failedAt.put(projectNumber, System.currentTimeMillis());
+                    logger.warning("Failed to refresh project #" + projectNumber + ": " + e.getMessage());
+                } finally {
+                    refreshing.remove(projectNumber);
                 }
-              }
-            }
-            """, owner, repo);
-
-        JsonObject response = executeGraphQL(projectIdQuery);
-        JsonArray projects = response.getAsJsonObject("data")
-                .getAsJsonObject("repository")
-                .getAsJsonObject("projectsV2")
-                .getAsJsonArray("nodes");
-
-        String projectId = null;
-        String projectTitle = null;
-        for (int i = 0; i < projects.size(); i++) {
-            JsonObject proj = projects.get(i).getAsJsonObject();
-            if (proj.get("number").getAsInt() == projectNumber) {
-                projectId = proj.get("id").getAsString();
-                projectTitle = proj.get("title").getAsString();
-                break;
+            });
+        }
+        return board;
+    }
+
+    /**
+     * Whether the last background refresh of the board failed, so the
+     * snapshot may be out of date.
+     */
+    public boolean isStale(int projectNumber) {
+        return failedAt.containsKey(projectNumber);
+    }
+
+    /**
+     * When the board was last fetched successfully, or 0 if never.
+     */
+    public long getCheckedAt(int projectNumber) {
+        return checkedAt.getOrDefault(projectNumber, 0L);
+    }
+
+    private ProjectBoard refreshBoard(int projectNumber) throws IOException {
+        ProjectBoard fetched = getProjectBoard(projectNumber);
+        checkedAt.put(projectNumber, fetched.fetchedAt);
+        failedAt.remove(projectNumber);
+        return boards.merge(projectNumber, fetched, (previous, current) -> {
+            // An unchanged board keeps its snapshot, so callers can skip diffing by identity
+            if (previous.title.equals(current.title) && compare(previous, current).isEmpty()) {
+                return previous;
             }
+            return new ProjectBoard(current.number, current.title, current.items, previous.version + 1, current.fetchedAt);
+        });
+    }
+
+    /**
+     * Compares two snapshots of the same board item by item.
+     */
+    public static BoardDelta diff(ProjectBoard previous, ProjectBoard current) {
+        return previous == current ? new BoardDelta() : compare(previous, current);
+    }
+
+    private static BoardDelta compare(ProjectBoard previous, ProjectBoard current) {
+        BoardDelta delta = new BoardDelta();
+        Map<String, ProjectItem> before = new LinkedHashMap<>();
+        for (ProjectItem item : previous.items) {
+            before.put(item.id, item);
         }
 
-        if (projectId == null) {
-            throw new IOException("Project #" + projectNumber + " not found");
+        for (ProjectItem item : current.items) {
+            ProjectItem old = before.remove(item.id);
+            if (old == null) {
+                delta.added.add(item);
+            } else if (!old.status.equals(item.status)) {
+                delta.moved.add(item);
+            } else if (!old.sameContent(item)) {
+                delta.updated.add(item);
+            }
         }
+        delta.removed.addAll(before.values());
+        return delta;
+    }
 
-        // Now get project items
-        String itemsQuery = String.format("""
-            {
-              node(id: "%s") {
-                ... on ProjectV2 {
-                  items(first: 50) {
-                    nodes {
-                      id
-                      content {
-                        ... on Issue {
-                          number
-                          title
-                          state
-                          url
-                        }
-                      }
-                      fieldValues(first: 8) {
-                        nodes {
-                          ... on ProjectV2ItemFieldSingleSelectValue {
-                            name
-                            field {
-                              ... on ProjectV2SingleSelectField {
-                                name
-                              }
-                            }
-                          }
-                        }
-                      }
-                    }
-                  }
+    /**
+     * Streams a project's issues to {@code handler} one page at a time, so large
+     * boards are never truncated. The first page is fetched by project number
+     * together with the Status field's options; once the project ID and options
+     * are known, later pages and later calls only ask for item data.
+     *
+     * @return the project title
+     */
+    public String streamProjectItems(int projectNumber, ItemPageHandler handler) throws IOException {
+        ProjectMeta meta = projectMeta.get(projectNumber);
+        String cursor = null;
+
+        while (true) {
+            Map<String, String> options = meta != null ? meta.statusOptions : null;
+            boolean withFields = options == null;
+            JsonObject project;
+            if (!withFields) {
+                JsonObject variables = new JsonObject();
+                variables.addProperty("id", meta.id);
+                variables.addProperty("cursor", cursor);
+                project = executeGraphQL(ITEMS_BY_ID_QUERY, variables)
+                        .getAsJsonObject("data")
+                        .getAsJsonObject("node");
+            } else {
+                JsonObject variables = repositoryVariables();
+                variables.addProperty("number", projectNumber);
+                variables.addProperty("cursor", cursor);
+                JsonObject repository = executeGraphQL(ITEMS_BY_NUMBER_QUERY, variables)
+                        .getAsJsonObject("data")
+                        .getAsJsonObject("repository");
+                project = repository.has("projectV2") && !repository.get("projectV2").isJsonNull()
+                        ? repository.getAsJsonObject("projectV2") : null;
+                if (project != null) {
+                    meta = new ProjectMeta(project.get("id").getAsString(), project.get("title").getAsString());
+                    options = parseStatusOptions(project);
+                    meta.statusOptions = options;
+                    projectMeta.put(projectNumber, meta);
                 }
-              }
             }
-            """, projectId);
 
-        response = executeGraphQL(itemsQuery);
-        JsonObject projectData = response.getAsJsonObject("data").getAsJsonObject("node");
-        JsonArray items = projectData.getAsJsonObject("items").getAsJsonArray("nodes");
+            if (project == null) {
+                projectMeta.remove(projectNumber);
+                throw new IOException("Project #" + projectNumber + " not found");
+            }
 
-        List<ProjectItem> projectItems = new ArrayList<>();
-        for (int i = 0; i < items.size(); i++) {
-            JsonObject item = items.get(i).getAsJsonObject();
+            JsonObject items = project.getAsJsonObject("items");
+            List<ProjectItem> page = new ArrayList<>();
+            boolean unknownOption = false;
+            JsonArray nodes = items.getAsJsonArray("nodes");
+            for (int i = 0; i < nodes.size(); i++) {
+                JsonObject item = nodes.get(i).getAsJsonObject();
 
-            if (!item.has("content") || item.get("content").isJsonNull()) {
-                continue;
+                if (!item.has("content") || item.get("content").isJsonNull()) {
+                    continue;
+                }
+
+                JsonObject content = item.getAsJsonObject("content");
+                if (!content.has("number")) {
+                    continue;
+                }
+
+                String status = "No Status";
+                if (item.has("fieldValueByName") && !item.get("fieldValueByName").isJsonNull()) {
+                    JsonObject value = item.getAsJsonObject("fieldValueByName");
+                    if (value.has("optionId") && !value.get("optionId").isJsonNull()) {
+                        String optionId = value.get("optionId").getAsString();
+                        String name = options.get(optionId);
+                        if (name != null) {
+                            status = name;
+                        } else {
+                            unknownOption = true;
+                        }
+                    }
+                }
+
+                page.add(new ProjectItem(
+                    item.get("id").getAsString(),
+                    content.get("number").getAsInt(),
+                    content.get("title").getAsString(),
+                    content.get("state").getAsString(),
+                    status,
+                    content.get("url").getAsString()
+                ));
             }
 
-            JsonObject content = item.getAsJsonObject("content");
-            if (!content.has("number")) {
+            if (unknownOption && !withFields) {
+                // A Status option was added since we cached the field; refetch this page with it
+                meta.statusOptions = null;
                 continue;
             }
 
-            int issueNumber = content.get("number").getAsInt();
-            String title = content.get("title").getAsString();
-            String state = content.get("state").getAsString();
-            String url = content.get("url").getAsString();
-
-            // Get status from field values
-            String status = "No Status";
-            JsonArray fieldValues = item.getAsJsonObject("fieldValues").getAsJsonArray("nodes");
-            for (int j = 0; j < fieldValues.size(); j++) {
-                JsonObject fieldValue = fieldValues.get(j).getAsJsonObject();
-                if (fieldValue.has("field") && fieldValue.has("name")) {
-                    JsonObject field = fieldValue.getAsJsonObject("field");
-                    if (field.has("name") && field.get("name").getAsString().equals("Status")) {
-                        status = fieldValue.get("name").getAsString();
-                        break;
-                    }
+            handler.onPage(page);
+            cursor = nextCursor(items);
+            if (cursor == null) {
+                return meta.title;
+            }
+        }
+    }
+
+    private static Map<String, String> parseStatusOptions(JsonObject project) {
+        Map<String, String> options = new LinkedHashMap<>();
+        if (project.has("field") && !project.get("field").isJsonNull()) {
+            JsonObject field = project.getAsJsonObject("field");
+            if (field.has("options")) {
+                JsonArray array = field.getAsJsonArray("options");
+                for (int i = 0; i < array.size(); i++) {
+                    JsonObject option = array.get(i).getAsJsonObject();
+                    options.put(option.get("id").getAsString(), option.get("name").getAsString());
                 }
             }
+        }
+        return options;
+    }
 
-            projectItems.add(new ProjectItem(issueNumber, title, state, status, url));
+    private static String nextCursor(JsonObject connection) {
+        JsonObject pageInfo = connection.getAsJsonObject("pageInfo");
+        if (pageInfo != null && pageInfo.get("hasNextPage").getAsBoolean()) {
+            return pageInfo.get("endCursor").getAsString();
         }
+        return null;
+    }
 
-        return new ProjectBoard(projectNumber, projectTitle, projectItems);
+    private JsonObject repositoryVariables() {
+        JsonObject variables = new JsonObject();
+        variables.addProperty("owner", owner);
+        variables.addProperty("name", repo);
+        return variables;
     }
 
     public void createIssue(String title, String body, int projectNumber) throws IOException {
@@ -206,7 +420,7 @@ public class GitHubProjectsClient {
                 ))
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = http().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Failed to create issue: " + response.code());
             }
@@ -220,21 +434,25 @@ public class GitHubProjectsClient {
         }
     }
 
-    private JsonObject executeGraphQL(String query) throws IOException {
+    private JsonObject executeGraphQL(String query, JsonObject variables) throws IOException {
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("query", query);
+        requestBody.add("variables", variables);
 
-        Request request = new Request.Builder()
+        Request.Builder builder = new Request.Builder()
                 .url("https://api.github.com/graphql")
                 .header("Authorization", "Bearer " + token)
                 .header("Content-Type", "application/json")
                 .post(RequestBody.create(
                     gson.toJson(requestBody),
                     MediaType.parse("application/json")
-                ))
-                .build();
+                ));
+        if (!query.trim().startsWith("mutation")) {
+            ResilienceInterceptor.idempotent(builder);
+        }
+        Request request = builder.build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = http().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("GraphQL request failed: " + response.code());
             }
@@ -251,8 +469,31 @@ public class GitHubProjectsClient {
         }
     }
 
+    /**
+     * The client with timeouts fitted to GitHub GraphQL's recent latency.
+     */
+    private OkHttpClient http() {
+        return latency.adapt(httpClient);
+    }
+
     public void shutdown() {
         // OkHttp manages its own connection pool
+        refresher.shutdownNow();
+    }
+
+    public interface ItemPageHandler {
+        void onPage(List<ProjectItem> items) throws IOException;
+    }
+
+    private static class ProjectMeta {
+        final String id;
+        final String title;
+        volatile Map<String, String> statusOptions;
+
+        ProjectMeta(String id, String title) {
+            this.id = id;
+            this.title = title;
+        }
     }
 
     public static class Project {
@@ -273,27 +514,70 @@ public class GitHubProjectsClient {
         public final int number;
         public final String title;
         public final List<ProjectItem> items;
+        public final long version;
+        public final long fetchedAt;
 
         public ProjectBoard(int number, String title, List<ProjectItem> items) {
+            this(number, title, items, 1, System.currentTimeMillis());
+        }
+
+        public ProjectBoard(int number, String title, List<ProjectItem> items, long version, long fetchedAt) {
             this.number = number;
             this.title = title;
             this.items = items;
+            this.version = version;
+            this.fetchedAt = fetchedAt;
         }
     }
 
     public static class ProjectItem {
+        public final String id;
         public final int issueNumber;
         public final String title;
         public final String state;
         public final String status;
         public final String url;
 
-        public ProjectItem(int issueNumber, String title, String state, String status, String url) {
+        public ProjectItem(String id, int issueNumber, String title, String state, String status, String url) {
+            this.id = id;
             this.issueNumber = issueNumber;
             this.title = title;
             this.state = state;
             this.status = status;
             this.url = url;
         }
+
+        public boolean sameContent(ProjectItem other) {
+            return issueNumber == other.issueNumber
+                && Objects.equals(title, other.title)
+                && Objects.equals(state, other.state)
+                && Objects.equals(status, other.status)
+                && Objects.equals(url, other.url);
+        }
+    }
+
+    /**
+     * Per-item changes between two versions of a board.
+     */
+    public static class BoardDelta {
+        public final List<ProjectItem> added = new ArrayList<>();
+        public final List<ProjectItem> removed = new ArrayList<>();
+        public final List<ProjectItem> moved = new ArrayList<>();
+        public final List<ProjectItem> updated = new ArrayList<>();
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && moved.isEmpty() && updated.isEmpty();
+        }
+
+        /**
+         * Number of moved items per destination status.
+         */
+        public Map<String, Integer> movedTo() {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (ProjectItem item : moved) {
+                counts.merge(item.status, 1, Integer::sum);
+            }
+            return counts;
+        }
     }
 }
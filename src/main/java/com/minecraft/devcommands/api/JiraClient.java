@@ -3,35 +3,90 @@ package com.minecraft.devcommands.api;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.minecraft.devcommands.utils.AdfRenderer;
 import okhttp3.*;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Set;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class JiraClient {
+    /**
+     * Fields needed to show an issue in a list; everything but the description.
+     */
+    public static final List<String> LIST_FIELDS = List.of("summary", "status", "issuetype", "assignee");
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BULK_SIZE = 50;
+    private static final int MAX_TRACKED_ISSUES = 1000;
+    private static final int DEFAULT_DESCRIPTION_CHARS = 8000;
+
+    // Jira's default priority IDs run from 1 (Highest) to 5 (Lowest); 3 is Medium
+    private static final int DEFAULT_PRIORITY_RANK = 3;
+    private static final DateTimeFormatter JIRA_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+    // Status and assignee of an issue we just created, until it is fetched back
+    public static final String UNKNOWN = "Unknown";
+
     private final OkHttpClient httpClient;
+    private final LatencyTracker latency;
     private final String jiraUrl;
     private final String email;
     private final String apiToken;
     private final String projectKey;
     private final Gson gson;
     private final Logger logger;
+    private volatile JiraMirror mirror;
+
+    // "project|type|status" -> lowercase transition name -> transition
+    private final Map<String, Map<String, Transition>> transitionCache = new ConcurrentHashMap<>();
+
+    // Last known workflow position of recently seen issues
+    private final Map<String, IssueState> issueStates = Collections.synchronizedMap(
+        new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IssueState> eldest) {
+                return size() > MAX_TRACKED_ISSUES;
+            }
+        });
 
-    public JiraClient(String jiraUrl, String email, String apiToken, String projectKey, Logger logger) {
+    public JiraClient(String jiraUrl, String email, String apiToken, String projectKey, LatencyTracker latency,
+                      ResilienceInterceptor resilience, Logger logger) {
         this.jiraUrl = jiraUrl.endsWith("/") ? jiraUrl.substring(0, jiraUrl.length() - 1) : jiraUrl;
         this.email = email;
         this.apiToken = apiToken;
         this.projectKey = projectKey;
         this.logger = logger;
+        this.latency = latency;
         this.gson = new Gson();
 
         this.httpClient = new OkHttpClient.Builder()
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
+                .addInterceptor(new CancellationInterceptor())
+                .addInterceptor(resilience)
+                .eventListenerFactory(latency.listenerFactory())
                 .build();
     }
 
@@ -40,6 +95,14 @@ public class JiraClient {
     }
 
     public Issue getIssue(String issueKey) throws IOException {
+        return getIssue(issueKey, DEFAULT_DESCRIPTION_CHARS);
+    }
+
+    /**
+     * Fetches an issue, rendering at most {@code maxDescriptionChars} of its
+     * description.
+     */
+    public Issue getIssue(String issueKey, int maxDescriptionChars) throws IOException {
         String url = jiraUrl + "/rest/api/3/issue/" + issueKey;
 
         Request request = new Request.Builder()
@@ -48,25 +111,106 @@ public class JiraClient {
                 .header("Accept", "application/json")
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = http().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Failed to fetch issue: " + response.code() + " " + response.message());
             }
 
             String responseBody = response.body().string();
             JsonObject json = gson.fromJson(responseBody, JsonObject.class);
-            return parseIssue(json);
+            Issue issue = parseIssue(json, maxDescriptionChars);
+            if (mirror != null) {
+                mirror.upsert(issue);
+            }
+            return issue;
+        }
+    }
+
+    /**
+     * Returns the account ID of the user the client authenticates as.
+     */
+    public String getMyAccountId() throws IOException {
+        Request request = new Request.Builder()
+                .url(jiraUrl + "/rest/api/3/myself")
+                .header("Authorization", getAuthHeader())
+                .header("Accept", "application/json")
+                .build();
+
+        try (Response response = http().newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to fetch current user: " + response.code());
+            }
+
+            JsonObject json = gson.fromJson(response.body().string(), JsonObject.class);
+            return json.get("accountId").getAsString();
         }
     }
 
+    /**
+     * Lets a local mirror see issues this client fetches, creates or comments on.
+     */
+    public void attachMirror(JiraMirror mirror) {
+        this.mirror = mirror;
+    }
+
+    /**
+     * Searches issues, fetching only the fields list views show.
+     */
     public List<Issue> searchIssues(String jql, int maxResults) throws IOException {
+        return searchIssues(jql, LIST_FIELDS, maxResults);
+    }
+
+    public List<Issue> searchIssues(String jql, List<String> fields, int maxResults) throws IOException {
+        List<Issue> result = new ArrayList<>();
+        String pageToken = null;
+        do {
+            SearchPage page = searchPage(jql, fields, Math.min(maxResults - result.size(), MAX_PAGE_SIZE), pageToken);
+            for (Issue issue : page.issues) {
+                if (result.size() < maxResults) {
+                    result.add(issue);
+                }
+            }
+            pageToken = page.nextPageToken;
+        } while (pageToken != null && result.size() < maxResults);
+        return result;
+    }
+
+    /**
+     * Lazily iterates over every issue matching {@code jql}. Pages of
+     * {@code pageSize} issues are fetched only as the iterator reaches them;
+     * request failures surface as {@link UncheckedIOException}.
+     */
+    public Iterator<Issue> iterateIssues(String jql, List<String> fields, int pageSize) {
+        return new IssueIterator(jql, fields, Math.min(pageSize, MAX_PAGE_SIZE));
+    }
+
+    public Stream<Issue> streamIssues(String jql, List<String> fields, int pageSize) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+            iterateIssues(jql, fields, pageSize), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Fetches one page of search results.
+     *
+     * @param pageToken the previous page's {@code nextPageToken}, or null for the first page
+     */
+    public SearchPage searchPage(String jql, List<String> fields, int pageSize, String pageToken) throws IOException {
         String url = jiraUrl + "/rest/api/3/search/jql";
 
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("jql", jql);
-        requestBody.addProperty("maxResults", maxResults);
+        requestBody.addProperty("maxResults", pageSize);
+        JsonArray fieldList = new JsonArray();
+        for (String field : fields) {
+            fieldList.add(field);
+        }
+        requestBody.add("fields", fieldList);
+        if (pageToken != null) {
+            requestBody.addProperty("nextPageToken", pageToken);
+        }
 
-        Request request = new Request.Builder()
+        // A search only reads, so it can be retried despite being a POST
+        Request request = ResilienceInterceptor.idempotent(new Request.Builder())
                 .url(url)
                 .header("Authorization", getAuthHeader())
                 .header("Content-Type", "application/json")
@@ -76,7 +220,7 @@ public class JiraClient {
                 ))
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = http().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Failed to search issues: " + response.code());
             }
@@ -89,13 +233,158 @@ public class JiraClient {
             for (int i = 0; i < issues.size(); i++) {
                 result.add(parseIssue(issues.get(i).getAsJsonObject()));
             }
-            return result;
+
+            String nextPageToken = null;
+            boolean isLast = json.has("isLast") && json.get("isLast").getAsBoolean();
+            if (!isLast && json.has("nextPageToken") && !json.get("nextPageToken").isJsonNull()) {
+                nextPageToken = json.get("nextPageToken").getAsString();
+            }
+            return new SearchPage(result, nextPageToken);
         }
     }
 
+    /**
+     * Fetches an issue without blocking the caller.
+     */
+    public CompletableFuture<Issue> fetchIssueAsync(String issueKey) {
+        String url = jiraUrl + "/rest/api/3/issue/" + issueKey;
+
+        Request request = new Request.Builder()
+                .url(url)
+                .header("Authorization", getAuthHeader())
+                .header("Accept", "application/json")
+                .build();
+
+        CompletableFuture<Issue> future = new CompletableFuture<>();
+        http().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    if (!response.isSuccessful()) {
+                        throw new IOException("Failed to fetch issue: " + response.code() + " " + response.message());
+                    }
+                    JsonObject json = gson.fromJson(response.body().string(), JsonObject.class);
+                    Issue issue = parseIssue(json);
+                    if (mirror != null) {
+                        mirror.upsert(issue);
+                    }
+                    future.complete(issue);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Creates an issue and builds the result from the request and the returned
+     * key, without fetching it back. Status and assignee depend on the project's
+     * workflow and defaults, so they are {@link #UNKNOWN}; use
+     * {@link #fetchIssueAsync(String)} for the server's view.
+     */
     public Issue createIssue(String summary, String description, String issueType) throws IOException {
         String url = jiraUrl + "/rest/api/3/issue";
 
+        JsonObject requestBody = new JsonObject();
+        requestBody.add("fields", buildIssueFields(summary, description, issueType));
+
+        Request request = new Request.Builder()
+                .url(url)
+                .header("Authorization", getAuthHeader())
+                .header("Content-Type", "application/json")
+                .post(RequestBody.create(
+                    gson.toJson(requestBody),
+                    MediaType.parse("application/json")
+                ))
+                .build();
+
+        try (Response response = http().newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                String error = response.body() != null ? response.body().string() : "Unknown error";
+                throw new IOException("Failed to create issue: " + response.code() + " - " + error);
+            }
+
+            String responseBody = response.body().string();
+            JsonObject json = gson.fromJson(responseBody, JsonObject.class);
+            return createdIssue(json.get("key").getAsString(), summary, description, issueType);
+        }
+    }
+
+    /**
+     * Creates several issues through the bulk endpoint, one request per
+     * {@value #MAX_BULK_SIZE} issues. Issues Jira rejects are reported in
+     * {@link BulkResult#errors} rather than failing the whole batch.
+     */
+    public BulkResult createIssues(List<NewIssue> issues) throws IOException {
+        String url = jiraUrl + "/rest/api/3/issue/bulk";
+        BulkResult result = new BulkResult();
+
+        for (int start = 0; start < issues.size(); start += MAX_BULK_SIZE) {
+            List<NewIssue> batch = issues.subList(start, Math.min(start + MAX_BULK_SIZE, issues.size()));
+
+            JsonArray updates = new JsonArray();
+            for (NewIssue issue : batch) {
+                JsonObject update = new JsonObject();
+                update.add("fields", buildIssueFields(issue.summary, issue.description, issue.issueType));
+                updates.add(update);
+            }
+            JsonObject requestBody = new JsonObject();
+            requestBody.add("issueUpdates", updates);
+
+            Request request = new Request.Builder()
+                    .url(url)
+                    .header("Authorization", getAuthHeader())
+                    .header("Content-Type", "application/json")
+                    .post(RequestBody.create(
+                        gson.toJson(requestBody),
+                        MediaType.parse("application/json")
+                    ))
+                    .build();
+
+            try (Response response = http().newCall(request).execute()) {
+                String responseBody = response.body() != null ? response.body().string() : "";
+                // 400 with per-element errors still creates the valid issues
+                if (!response.isSuccessful() && response.code() != 400) {
+                    throw new IOException("Failed to create issues: " + response.code() + " - " + responseBody);
+                }
+
+                JsonObject json = gson.fromJson(responseBody, JsonObject.class);
+                Set<Integer> failed = new HashSet<>();
+                if (json != null && json.has("errors")) {
+                    JsonArray errors = json.getAsJsonArray("errors");
+                    for (int i = 0; i < errors.size(); i++) {
+                        JsonObject error = errors.get(i).getAsJsonObject();
+                        int element = error.has("failedElementNumber") ? error.get("failedElementNumber").getAsInt() : -1;
+                        failed.add(element);
+                        String summary = element >= 0 && element < batch.size() ? batch.get(element).summary : "?";
+                        result.errors.add(summary + ": " + bulkErrorMessage(error));
+                    }
+                }
+
+                // Created issues come back in request order, skipping the failed elements
+                JsonArray created = json != null && json.has("issues") ? json.getAsJsonArray("issues") : new JsonArray();
+                int next = 0;
+                for (int i = 0; i < batch.size() && next < created.size(); i++) {
+                    if (failed.contains(i)) {
+                        continue;
+                    }
+                    NewIssue issue = batch.get(i);
+                    String key = created.get(next++).getAsJsonObject().get("key").getAsString();
+                    result.created.add(createdIssue(key, issue.summary, issue.description, issue.issueType));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private JsonObject buildIssueFields(String summary, String description, String issueType) {
         JsonObject fields = new JsonObject();
 
         JsonObject project = new JsonObject();
@@ -130,68 +419,117 @@ public class JiraClient {
             fields.add("description", descriptionContent);
         }
 
-        JsonObject requestBody = new JsonObject();
-        requestBody.add("fields", fields);
+        return fields;
+    }
 
-        Request request = new Request.Builder()
-                .url(url)
-                .header("Authorization", getAuthHeader())
-                .header("Content-Type", "application/json")
-                .post(RequestBody.create(
-                    gson.toJson(requestBody),
-                    MediaType.parse("application/json")
-                ))
-                .build();
+    /**
+     * The issue as far as the create request tells us. Nothing is recorded in
+     * the workflow state or the mirror until Jira reports the real values.
+     */
+    private Issue createdIssue(String key, String summary, String description, String issueType) {
+        return new Issue(key, summary, description != null ? description : "", UNKNOWN, issueType,
+            UNKNOWN, jiraUrl + "/browse/" + key, null, false, DEFAULT_PRIORITY_RANK, System.currentTimeMillis());
+    }
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String error = response.body() != null ? response.body().string() : "Unknown error";
-                throw new IOException("Failed to create issue: " + response.code() + " - " + error);
+    private static String bulkErrorMessage(JsonObject error) {
+        if (!error.has("elementErrors")) {
+            return "HTTP " + (error.has("status") ? error.get("status").getAsInt() : 0);
+        }
+        JsonObject elementErrors = error.getAsJsonObject("elementErrors");
+        List<String> messages = new ArrayList<>();
+        if (elementErrors.has("errorMessages")) {
+            for (var message : elementErrors.getAsJsonArray("errorMessages")) {
+                messages.add(message.getAsString());
+            }
+        }
+        if (elementErrors.has("errors")) {
+            for (var entry : elementErrors.getAsJsonObject("errors").entrySet()) {
+                messages.add(entry.getKey() + " - " + entry.getValue().getAsString());
             }
-
-            String responseBody = response.body().string();
-            JsonObject json = gson.fromJson(responseBody, JsonObject.class);
-            String key = json.get("key").getAsString();
-
-            // Fetch the created issue to get full details
-            return getIssue(key);
         }
+        return String.join("; ", messages);
     }
 
+    /**
+     * Moves an issue through a workflow transition, matched by transition name
+     * or target status. Transition IDs are cached per project, issue type and
+     * current status, so when the issue's state is already known this is a
+     * single POST. A failed POST drops the cached entry and retries once
+     * against freshly fetched transitions.
+     */
     public void updateIssueStatus(String issueKey, String transitionName) throws IOException {
-        // First, get available transitions
-        String transitionsUrl = jiraUrl + "/rest/api/3/issue/" + issueKey + "/transitions";
+        IssueState state = issueStates.get(issueKey);
+        if (state != null) {
+            Map<String, Transition> transitions = transitionCache.get(state.cacheKey());
+            Transition transition = transitions != null ? findTransition(transitions, transitionName) : null;
+            if (transition != null) {
+                if (postTransition(issueKey, transition.id)) {
+                    issueStates.put(issueKey, state.withStatus(transition.toStatus));
+                    if (mirror != null) {
+                        mirror.applyStatus(issueKey, transition.toStatus, transition.done);
+                    }
+                    return;
+                }
+                transitionCache.remove(state.cacheKey());
+            }
+        }
+
+        // Fetch current status, type and available transitions in one request
+        String url = jiraUrl + "/rest/api/3/issue/" + issueKey + "?fields=status,issuetype&expand=transitions";
 
         Request getTransitions = new Request.Builder()
-                .url(transitionsUrl)
+                .url(url)
                 .header("Authorization", getAuthHeader())
+                .header("Accept", "application/json")
                 .build();
 
-        String transitionId = null;
-        try (Response response = httpClient.newCall(getTransitions).execute()) {
+        Map<String, Transition> transitions = new LinkedHashMap<>();
+        try (Response response = http().newCall(getTransitions).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Failed to get transitions: " + response.code());
             }
 
             String responseBody = response.body().string();
             JsonObject json = gson.fromJson(responseBody, JsonObject.class);
-            JsonArray transitions = json.getAsJsonArray("transitions");
-
-            for (int i = 0; i < transitions.size(); i++) {
-                JsonObject transition = transitions.get(i).getAsJsonObject();
-                String name = transition.get("name").getAsString();
-                if (name.equalsIgnoreCase(transitionName)) {
-                    transitionId = transition.get("id").getAsString();
-                    break;
-                }
+            JsonObject fields = json.getAsJsonObject("fields");
+            state = new IssueState(
+                projectOf(issueKey),
+                fields.getAsJsonObject("issuetype").get("name").getAsString(),
+                fields.getAsJsonObject("status").get("name").getAsString()
+            );
+
+            JsonArray list = json.getAsJsonArray("transitions");
+            for (int i = 0; i < list.size(); i++) {
+                JsonObject transition = list.get(i).getAsJsonObject();
+                JsonObject to = transition.has("to") ? transition.getAsJsonObject("to") : null;
+                String toStatus = to != null ? to.get("name").getAsString() : transition.get("name").getAsString();
+                boolean done = to != null && to.has("statusCategory")
+                        && "done".equals(to.getAsJsonObject("statusCategory").get("key").getAsString());
+                transitions.put(transition.get("name").getAsString().toLowerCase(Locale.ROOT),
+                        new Transition(transition.get("id").getAsString(), toStatus, done));
             }
         }
 
-        if (transitionId == null) {
+        transitionCache.put(state.cacheKey(), transitions);
+        issueStates.put(issueKey, state);
+
+        Transition transition = findTransition(transitions, transitionName);
+        if (transition == null) {
             throw new IOException("Transition '" + transitionName + "' not found for issue " + issueKey);
         }
+        if (!postTransition(issueKey, transition.id)) {
+            transitionCache.remove(state.cacheKey());
+            throw new IOException("Failed to transition issue " + issueKey + " with '" + transitionName + "'");
+        }
+        issueStates.put(issueKey, state.withStatus(transition.toStatus));
+        if (mirror != null) {
+            mirror.applyStatus(issueKey, transition.toStatus, transition.done);
+        }
+    }
+
+    private boolean postTransition(String issueKey, String transitionId) throws IOException {
+        String url = jiraUrl + "/rest/api/3/issue/" + issueKey + "/transitions";
 
-        // Now perform the transition
         JsonObject transitionObj = new JsonObject();
         transitionObj.addProperty("id", transitionId);
 
@@ -199,7 +537,7 @@ public class JiraClient {
         requestBody.add("transition", transitionObj);
 
         Request request = new Request.Builder()
-                .url(transitionsUrl)
+                .url(url)
                 .header("Authorization", getAuthHeader())
                 .header("Content-Type", "application/json")
                 .post(RequestBody.create(
@@ -208,13 +546,33 @@ public class JiraClient {
                 ))
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
+        try (Response response = http().newCall(request).execute()) {
+            if (response.code() == 401 || response.code() == 403) {
                 throw new IOException("Failed to transition issue: " + response.code());
             }
+            return response.isSuccessful();
         }
     }
 
+    private static Transition findTransition(Map<String, Transition> transitions, String name) {
+        Transition transition = transitions.get(name.toLowerCase(Locale.ROOT));
+        if (transition != null) {
+            return transition;
+        }
+        // Players usually name the column they want, which is the target status
+        for (Transition candidate : transitions.values()) {
+            if (candidate.toStatus.equalsIgnoreCase(name)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static String projectOf(String issueKey) {
+        int dash = issueKey.lastIndexOf('-');
+        return dash > 0 ? issueKey.substring(0, dash) : issueKey;
+    }
+
     public void addComment(String issueKey, String comment) throws IOException {
         String url = jiraUrl + "/rest/api/3/issue/" + issueKey + "/comment";
 
@@ -249,62 +607,181 @@ public class JiraClient {
                 ))
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = http().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Failed to add comment: " + response.code());
             }
         }
+
+        if (mirror != null) {
+            mirror.touch(issueKey);
+        }
     }
 
     private Issue parseIssue(JsonObject json) {
+        return parseIssue(json, DEFAULT_DESCRIPTION_CHARS);
+    }
+
+    private Issue parseIssue(JsonObject json, int maxDescriptionChars) {
         String key = json.get("key").getAsString();
         JsonObject fields = json.getAsJsonObject("fields");
 
-        String summary = fields.get("summary").getAsString();
+        String summary = fields.has("summary") ? fields.get("summary").getAsString() : "";
         String description = "";
         if (fields.has("description") && !fields.get("description").isJsonNull()) {
-            description = extractTextFromADF(fields.getAsJsonObject("description"));
+            description = AdfRenderer.render(fields.getAsJsonObject("description"), maxDescriptionChars);
         }
 
-        String status = fields.getAsJsonObject("status").get("name").getAsString();
-        String issueType = fields.getAsJsonObject("issuetype").get("name").getAsString();
+        // Searches may project these fields away
+        String status = fields.has("status") ? fields.getAsJsonObject("status").get("name").getAsString() : "";
+        String issueType = fields.has("issuetype") ? fields.getAsJsonObject("issuetype").get("name").getAsString() : "";
 
         String assignee = "Unassigned";
+        String assigneeId = null;
         if (fields.has("assignee") && !fields.get("assignee").isJsonNull()) {
-            assignee = fields.getAsJsonObject("assignee").get("displayName").getAsString();
+            JsonObject user = fields.getAsJsonObject("assignee");
+            assignee = user.get("displayName").getAsString();
+            assigneeId = user.has("accountId") ? user.get("accountId").getAsString() : null;
+        }
+
+        boolean resolved = fields.has("resolution") && !fields.get("resolution").isJsonNull();
+        int priorityRank = DEFAULT_PRIORITY_RANK;
+        if (fields.has("priority") && !fields.get("priority").isJsonNull()) {
+            try {
+                priorityRank = Integer.parseInt(fields.getAsJsonObject("priority").get("id").getAsString());
+            } catch (NumberFormatException ignored) {
+                // Custom priority schemes may use non-numeric IDs
+            }
+        }
+        long updated = 0;
+        if (fields.has("updated") && !fields.get("updated").isJsonNull()) {
+            try {
+                updated = OffsetDateTime.parse(fields.get("updated").getAsString(), JIRA_TIMESTAMP).toInstant().toEpochMilli();
+            } catch (DateTimeParseException ignored) {
+                // Leave unknown timestamps at zero
+            }
         }
 
         String url = jiraUrl + "/browse/" + key;
 
-        return new Issue(key, summary, description, status, issueType, assignee, url);
-    }
-
-    private String extractTextFromADF(JsonObject adf) {
-        // Simple ADF (Atlassian Document Format) text extractor
-        StringBuilder text = new StringBuilder();
-        if (adf.has("content")) {
-            JsonArray content = adf.getAsJsonArray("content");
-            for (int i = 0; i < content.size(); i++) {
-                JsonObject node = content.get(i).getAsJsonObject();
-                if (node.has("content")) {
-                    JsonArray innerContent = node.getAsJsonArray("content");
-                    for (int j = 0; j < innerContent.size(); j++) {
-                        JsonObject textNode = innerContent.get(j).getAsJsonObject();
-                        if (textNode.has("text")) {
-                            text.append(textNode.get("text").getAsString());
-                        }
-                    }
-                }
-                text.append("\n");
-            }
+        // Remember where the issue is in its workflow so transitions can skip a lookup
+        if (!status.isEmpty() && !issueType.isEmpty()) {
+            issueStates.put(key, new IssueState(projectOf(key), issueType, status));
         }
-        return text.toString().trim();
+
+        return new Issue(key, summary, description, status, issueType, assignee, url,
+            assigneeId, resolved, priorityRank, updated);
+    }
+
+    /**
+     * The client with timeouts fitted to Jira's recent latency.
+     */
+    private OkHttpClient http() {
+        return latency.adapt(httpClient);
     }
 
     public void shutdown() {
         // OkHttp manages its own connection pool
     }
 
+    private static class Transition {
+        final String id;
+        final String toStatus;
+        // Target status is in the Done category, which the list filters treat as resolved
+        final boolean done;
+
+        Transition(String id, String toStatus, boolean done) {
+            this.id = id;
+            this.toStatus = toStatus;
+            this.done = done;
+        }
+    }
+
+    private static class IssueState {
+        final String project;
+        final String type;
+        final String status;
+
+        IssueState(String project, String type, String status) {
+            this.project = project;
+            this.type = type;
+            this.status = status;
+        }
+
+        String cacheKey() {
+            return project + "|" + type + "|" + status;
+        }
+
+        IssueState withStatus(String newStatus) {
+            return new IssueState(project, type, newStatus);
+        }
+    }
+
+    public static class NewIssue {
+        public final String summary;
+        public final String description;
+        public final String issueType;
+
+        public NewIssue(String summary, String description, String issueType) {
+            this.summary = summary;
+            this.description = description;
+            this.issueType = issueType;
+        }
+    }
+
+    public static class BulkResult {
+        public final List<Issue> created = new ArrayList<>();
+        public final List<String> errors = new ArrayList<>();
+    }
+
+    public static class SearchPage {
+        public final List<Issue> issues;
+        public final String nextPageToken;
+
+        public SearchPage(List<Issue> issues, String nextPageToken) {
+            this.issues = issues;
+            this.nextPageToken = nextPageToken;
+        }
+    }
+
+    private class IssueIterator implements Iterator<Issue> {
+        private final String jql;
+        private final List<String> fields;
+        private final int pageSize;
+        private Iterator<Issue> page = Collections.emptyIterator();
+        private String pageToken;
+        private boolean exhausted;
+
+        IssueIterator(String jql, List<String> fields, int pageSize) {
+            this.jql = jql;
+            this.fields = fields;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext() && !exhausted) {
+                try {
+                    SearchPage next = searchPage(jql, fields, pageSize, pageToken);
+                    page = next.issues.iterator();
+                    pageToken = next.nextPageToken;
+                    exhausted = pageToken == null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public Issue next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+    }
+
     public static class Issue {
         public final String key;
         public final String summary;
@@ -313,9 +790,19 @@ public class JiraClient {
         public final String type;
         public final String assignee;
         public final String url;
+        public final String assigneeId;
+        public final boolean resolved;
+        public final int priorityRank;
+        public final long updated;
 
         public Issue(String key, String summary, String description, String status,
                     String type, String assignee, String url) {
+            this(key, summary, description, status, type, assignee, url, null, false, DEFAULT_PRIORITY_RANK, 0);
+        }
+
+        public Issue(String key, String summary, String description, String status,
+                    String type, String assignee, String url,
+                    String assigneeId, boolean resolved, int priorityRank, long updated) {
             this.key = key;
             this.summary = summary;
             this.description = description;
@@ -323,6 +810,15 @@ public class JiraClient {
             this.type = type;
             this.assignee = assignee;
             this.url = url;
+            this.assigneeId = assigneeId;
+            this.resolved = resolved;
+            this.priorityRank = priorityRank;
+            this.updated = updated;
+        }
+
+        public Issue withUpdated(long newUpdated) {
+            return new Issue(key, summary, description, status, type, assignee, url,
+                assigneeId, resolved, priorityRank, newUpdated);
         }
     }
 }
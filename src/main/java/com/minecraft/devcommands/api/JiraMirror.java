@@ -0,0 +1,312 @@
+package com.minecraft.devcommands.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * In-memory copy of one Jira project, kept current by incremental
+ * {@code updated >= -Nm} searches plus write-through from {@link JiraClient}.
+ * Issues are indexed by status, type and assignee so the built-in list
+ * filters never need a remote query once the first sync has finished.
+ */
+public class JiraMirror {
+    /**
+     * Fields the mirror needs to answer list filters.
+     */
+    public static final List<String> MIRROR_FIELDS = List.of(
+        "summary", "status", "issuetype", "assignee", "resolution", "priority", "updated");
+
+    // Re-read the whole project now and then so deleted or moved issues drop out
+    private static final long FULL_SYNC_INTERVAL_MS = 60 * 60 * 1000;
+
+    // JQL compares at minute granularity; overlap so edits near the boundary aren't missed
+    private static final long SYNC_OVERLAP_MS = 60 * 1000;
+
+    private static final Comparator<JiraClient.Issue> BY_UPDATED =
+        Comparator.comparingLong((JiraClient.Issue issue) -> issue.updated).reversed();
+    private static final Comparator<JiraClient.Issue> BY_PRIORITY =
+        Comparator.comparingInt((JiraClient.Issue issue) -> issue.priorityRank).thenComparing(BY_UPDATED);
+
+    private final JiraClient jira;
+    private final String projectKey;
+    private final Logger logger;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, JiraClient.Issue> issues = new HashMap<>();
+    private final Map<String, Set<String>> byStatus = new HashMap<>();
+    private final Map<String, Set<String>> byType = new HashMap<>();
+    private final Map<String, Set<String>> byAssignee = new HashMap<>();
+    // When each issue was last written here, so a full sync keeps write-through from during its paging
+    private final Map<String, Long> writtenAt = new HashMap<>();
+
+    private volatile boolean ready;
+    private volatile long lastSync;
+    private volatile long lastFullSync;
+    private volatile String myAccountId;
+
+    public JiraMirror(JiraClient jira, String projectKey, Logger logger) {
+        this.jira = jira;
+        this.projectKey = projectKey;
+        this.logger = logger;
+    }
+
+    /**
+     * Brings the mirror up to date. The first call and one call per hour read the
+     * whole project; the rest only fetch issues updated since the previous sync.
+     */
+    public synchronized void sync() throws IOException {
+        long start = System.currentTimeMillis();
+        boolean full = !ready || start - lastFullSync > FULL_SYNC_INTERVAL_MS;
+
+        String jql = "project = " + projectKey;
+        if (!full) {
+            long minutes = Math.max(1, (start - lastSync + SYNC_OVERLAP_MS + 59_999) / 60_000);
+            jql += " AND updated >= -" + minutes + "m";
+        }
+        jql += " ORDER BY updated ASC";
+
+        if (myAccountId == null) {
+            try {
+                myAccountId = jira.getMyAccountId();
+            } catch (IOException e) {
+                logger.warning("Could not resolve Jira account for 'mine' filter: " + e.getMessage());
+            }
+        }
+
+        Set<String> seen = new HashSet<>();
+        int changed = 0;
+        try {
+            Iterator<JiraClient.Issue> results = jira.iterateIssues(jql, MIRROR_FIELDS, 100);
+            while (results.hasNext()) {
+                JiraClient.Issue issue = results.next();
+                seen.add(issue.key);
+                upsert(issue);
+                changed++;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (full) {
+            lock.writeLock().lock();
+            try {
+                for (String key : new ArrayList<>(issues.keySet())) {
+                    if (!seen.contains(key) && writtenAt.getOrDefault(key, 0L) < start) {
+                        remove(key);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastFullSync = start;
+        }
+
+        lastSync = start;
+        if (!ready || changed > 0) {
+            logger.info(String.format("Jira mirror of %s: %d issues (%s sync, %d fetched, %d ms)",
+                projectKey, size(), full ? "full" : "incremental", changed, System.currentTimeMillis() - start));
+        }
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public String getProjectKey() {
+        return projectKey;
+    }
+
+    /**
+     * Answers one of the built-in list filters (mine, bugs, all, or anything else
+     * for open issues) from the mirror, or returns null if it can't yet.
+     */
+    public List<JiraClient.Issue> query(String filter, int limit) {
+        if (!ready) {
+            return null;
+        }
+
+        List<JiraClient.Issue> result = new ArrayList<>();
+        Comparator<JiraClient.Issue> order = BY_UPDATED;
+
+        lock.readLock().lock();
+        try {
+            switch (filter.toLowerCase()) {
+                case "mine":
+                    if (myAccountId == null) {
+                        return null;
+                    }
+                    collectUnresolved(byAssignee.get(myAccountId), result);
+                    break;
+                case "bugs":
+                    collectUnresolved(byType.get("Bug"), result);
+                    order = BY_PRIORITY;
+                    break;
+                case "all":
+                    result.addAll(issues.values());
+                    break;
+                default:
+                    collectUnresolved(issues.keySet(), result);
+                    break;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        result.sort(order);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public List<JiraClient.Issue> byStatus(String status) {
+        return lookup(byStatus, status);
+    }
+
+    public List<JiraClient.Issue> byType(String type) {
+        return lookup(byType, type);
+    }
+
+    public List<JiraClient.Issue> byAssignee(String accountId) {
+        return lookup(byAssignee, accountId);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return issues.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a fetched or created issue. Issues from other projects are ignored.
+     */
+    public void upsert(JiraClient.Issue issue) {
+        if (!issue.key.startsWith(projectKey + "-")) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            JiraClient.Issue previous = issues.get(issue.key);
+            if (previous != null) {
+                unindex(previous);
+            }
+            issues.put(issue.key, issue);
+            writtenAt.put(issue.key, System.currentTimeMillis());
+            index(byStatus, issue.status, issue.key);
+            index(byType, issue.type, issue.key);
+            index(byAssignee, assigneeKey(issue), issue.key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks an issue as just updated (e.g. after a comment) so ordering stays right.
+     */
+    public void touch(String issueKey) {
+        lock.writeLock().lock();
+        try {
+            JiraClient.Issue issue = issues.get(issueKey);
+            if (issue != null) {
+                issues.put(issueKey, issue.withUpdated(System.currentTimeMillis()));
+                writtenAt.put(issueKey, System.currentTimeMillis());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a status change made through this plugin. {@code done} says the
+     * new status is in the Done category, which resolves the issue for the
+     * list filters.
+     */
+    public void applyStatus(String issueKey, String status, boolean done) {
+        lock.writeLock().lock();
+        try {
+            JiraClient.Issue issue = issues.get(issueKey);
+            if (issue != null) {
+                upsert(new JiraClient.Issue(issue.key, issue.summary, issue.description, status, issue.type,
+                    issue.assignee, issue.url, issue.assigneeId, done, issue.priorityRank,
+                    System.currentTimeMillis()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void collectUnresolved(Collection<String> keys, List<JiraClient.Issue> into) {
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            JiraClient.Issue issue = issues.get(key);
+            if (!issue.resolved) {
+                into.add(issue);
+            }
+        }
+    }
+
+    private List<JiraClient.Issue> lookup(Map<String, Set<String>> index, String value) {
+        List<JiraClient.Issue> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<String> keys = index.get(value);
+            if (keys != null) {
+                for (String key : keys) {
+                    result.add(issues.get(key));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(BY_UPDATED);
+        return result;
+    }
+
+    private void remove(String key) {
+        JiraClient.Issue issue = issues.remove(key);
+        writtenAt.remove(key);
+        if (issue != null) {
+            unindex(issue);
+        }
+    }
+
+    private void unindex(JiraClient.Issue issue) {
+        unindex(byStatus, issue.status, issue.key);
+        unindex(byType, issue.type, issue.key);
+        unindex(byAssignee, assigneeKey(issue), issue.key);
+    }
+
+    private static String assigneeKey(JiraClient.Issue issue) {
+        return issue.assigneeId != null ? issue.assigneeId : "";
+    }
+
+    private static void index(Map<String, Set<String>> index, String value, String key) {
+        index.computeIfAbsent(value, v -> new HashSet<>()).add(key);
+    }
+
+    private static void unindex(Map<String, Set<String>> index, String value, String key) {
+        Set<String> keys = index.get(value);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                index.remove(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.minecraft.devcommands.api;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling latency of one backend, and the timeouts that follow from it. Calls
+ * made through a client with {@link #listenerFactory()} are timed to the
+ * first response byte and to the end of the call; both deadlines are then the
+ * recent p99 times a factor, held within configured bounds. Until enough
+ * calls have been seen the upper bounds apply.
+ */
+public class LatencyTracker {
+    private static final int WINDOW = 256;
+    private static final double PERCENTILE = 99;
+    // Timeouts are recomputed at most this often, and clients rebuilt only when they move
+    private static final long REFRESH_MILLIS = 5_000;
+    private static final double REBUILD_CHANGE = 0.1;
+
+    private final String name;
+    private final double factor;
+    private final int minSamples;
+    private final long firstByteMinMillis;
+    private final long firstByteMaxMillis;
+    private final long totalMinMillis;
+    private final long totalMaxMillis;
+
+    private final LatencyWindow firstByte = new LatencyWindow(WINDOW);
+    private final LatencyWindow total = new LatencyWindow(WINDOW);
+
+    private long computedAt;
+    private long firstByteTimeout;
+    private long totalTimeout;
+    private OkHttpClient adaptedBase;
+    private OkHttpClient adapted;
+    private long adaptedFirstByte;
+    private long adaptedTotal;
+
+    public LatencyTracker(String name, double factor, int minSamples, long firstByteMinMillis, long firstByteMaxMillis,
+                          long totalMinMillis, long totalMaxMillis) {
+        this.name = name;
+        this.factor = factor;
+        this.minSamples = minSamples;
+        this.firstByteMinMillis = firstByteMinMillis;
+        this.firstByteMaxMillis = Math.max(firstByteMinMillis, firstByteMaxMillis);
+        this.totalMinMillis = totalMinMillis;
+        this.totalMaxMillis = Math.max(totalMinMillis, totalMaxMillis);
+        this.firstByteTimeout = this.firstByteMaxMillis;
+        this.totalTimeout = this.totalMaxMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Times every call of clients built with it. Install on the base client.
+     */
+    public EventListener.Factory listenerFactory() {
+        return call -> new CallTimer();
+    }
+
+    public synchronized long firstByteTimeoutMillis() {
+        refresh();
+        return firstByteTimeout;
+    }
+
+    public synchronized long totalTimeoutMillis() {
+        refresh();
+        return totalTimeout;
+    }
+
+    /**
+     * {@code base} with the current timeouts: read timeout for the first byte
+     * and call timeout for the whole call. The result shares base's connection
+     * pool and dispatcher, and is reused until the timeouts move noticeably.
+     */
+    public synchronized OkHttpClient adapt(OkHttpClient base) {
+        refresh();
+        if (adapted == null || adaptedBase != base
+                || moved(adaptedFirstByte, firstByteTimeout) || moved(adaptedTotal, totalTimeout)) {
+            adapted = base.newBuilder()
+                .readTimeout(firstByteTimeout, TimeUnit.MILLISECONDS)
+                .callTimeout(totalTimeout, TimeUnit.MILLISECONDS)
+                .build();
+            adaptedBase = base;
+            adaptedFirstByte = firstByteTimeout;
+            adaptedTotal = totalTimeout;
+        }
+        return adapted;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: first byte %d ms, total %d ms (%d samples)",
+            name, firstByteTimeout, totalTimeout, total.count());
+    }
+
+    private void refresh() {
+        long now = System.currentTimeMillis();
+        if (now - computedAt < REFRESH_MILLIS) {
+            return;
+        }
+        computedAt = now;
+        firstByteTimeout = timeout(firstByte, firstByteMinMillis, firstByteMaxMillis);
+        totalTimeout = Math.max(firstByteTimeout, timeout(total, totalMinMillis, totalMaxMillis));
+    }
+
+    private long timeout(LatencyWindow window, long min, long max) {
+        if (window.count() < minSamples) {
+            return max;
+        }
+        long derived = (long) (window.percentile(PERCENTILE) * factor);
+        return Math.max(min, Math.min(max, derived));
+    }
+
+    private static boolean moved(long from, long to) {
+        return Math.abs(to - from) > from * REBUILD_CHANGE;
+    }
+
+    private class CallTimer extends EventListener {
+        private final long start = System.nanoTime();
+        private long firstByteMillis = -1;
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            if (firstByteMillis < 0) {
+                firstByteMillis = elapsedMillis();
+                firstByte.record(firstByteMillis);
+            }
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            total.record(elapsedMillis());
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            // A timeout is a lower bound on the real latency; counting it lets
+            // the deadlines grow when the backend turns slow. Cancellations say
+            // nothing; an expired call timeout also cancels, so go by the exception.
+            if (!CancellationInterceptor.isTimeout(ioe)) {
+                return;
+            }
+            long elapsed = elapsedMillis();
+            if (firstByteMillis < 0) {
+                firstByte.record(elapsed);
+            }
+            total.record(elapsed);
+        }
+
+        private long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+}
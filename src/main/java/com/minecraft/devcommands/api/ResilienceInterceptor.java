@@ -0,0 +1,153 @@
+package com.minecraft.devcommands.api;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Retries transient failures and keeps requests away from a backend whose
+ * circuit breaker is open. Responses 429, 502, 503 and 504 and I/O errors are
+ * retried with jittered backoff, but only for requests that are safe to send
+ * twice: GET and friends, or a POST marked with {@link #idempotent}. A request
+ * that never reached the server (connection refused) is retried whatever its
+ * method.
+ */
+public class ResilienceInterceptor implements Interceptor {
+    private static final Set<Integer> RETRY_STATUSES = Set.of(429, 502, 503, 504);
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE");
+    // Sleeps are cut into slices so a cancelled command stops waiting promptly
+    private static final long SLEEP_SLICE_MILLIS = 100;
+
+    private enum Idempotent { MARK }
+
+    private final Function<HttpUrl, CircuitBreaker> breakers;
+    private final RetryPolicy retry;
+
+    public ResilienceInterceptor(CircuitBreaker breaker, RetryPolicy retry) {
+        this(url -> breaker, retry);
+    }
+
+    /**
+     * @param breakers the breaker guarding each URL, for clients that talk to
+     *                 several independent servers
+     */
+    public ResilienceInterceptor(Function<HttpUrl, CircuitBreaker> breakers, RetryPolicy retry) {
+        this.breakers = breakers;
+        this.retry = retry;
+    }
+
+    /**
+     * Marks a POST as safe to retry because it changes nothing, such as a
+     * search or a GraphQL query.
+     */
+    public static Request.Builder idempotent(Request.Builder builder) {
+        return builder.tag(Idempotent.class, Idempotent.MARK);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        CircuitBreaker breaker = breakers.apply(request.url());
+        boolean idempotent = IDEMPOTENT_METHODS.contains(request.method()) || request.tag(Idempotent.class) != null;
+
+        // Retries must fit within the call timeout; past it OkHttp cancels the call
+        long timeoutNanos = chain.call().timeout().timeoutNanos();
+        long deadline = timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : Long.MAX_VALUE;
+
+        long delay = 0;
+        for (int attempt = 1; ; attempt++) {
+            if (!breaker.tryAcquire()) {
+                throw new CircuitOpenException(breaker);
+            }
+            boolean last = attempt >= retry.getMaxAttempts();
+
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                if (CancellationInterceptor.wasCancelled(chain.call(), e)) {
+                    breaker.release();
+                    throw e;
+                }
+                breaker.recordFailure();
+                if (last || !(idempotent || e instanceof ConnectException) || isOpen(breaker)
+                        || chain.call().isCanceled()) {
+                    throw e;
+                }
+                delay = retry.nextDelayMillis(delay);
+                if (!fitsBefore(deadline, delay)) {
+                    throw e;
+                }
+                pause(chain, delay);
+                continue;
+            }
+
+            int code = response.code();
+            if (code < 500 && code != 429) {
+                breaker.recordSuccess();
+                return response;
+            }
+            breaker.recordFailure();
+            if (last || !idempotent || !RETRY_STATUSES.contains(code) || isOpen(breaker)) {
+                return response;
+            }
+            delay = retry.nextDelayMillis(delay);
+            long wait = Math.max(delay, retryAfterMillis(response));
+            if (wait > retry.getMaxDelayMillis() || !fitsBefore(deadline, wait)) {
+                // Longer than a player should sit through, or than the call has left
+                return response;
+            }
+            response.close();
+            pause(chain, wait);
+        }
+    }
+
+    private static boolean fitsBefore(long deadlineNanos, long waitMillis) {
+        return deadlineNanos == Long.MAX_VALUE
+            || System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis) < deadlineNanos;
+    }
+
+    private static boolean isOpen(CircuitBreaker breaker) {
+        return breaker.getState() != CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * Retry-After in seconds, or 0 if absent or given as a date.
+     */
+    private static long retryAfterMillis(Response response) {
+        String value = response.header("Retry-After");
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void pause(Chain chain, long millis) throws IOException {
+        long deadline = System.currentTimeMillis() + millis;
+        long remaining;
+        while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+            // Pauses end before the call timeout, so this is a real cancellation
+            if (chain.call().isCanceled()) {
+                throw new InterruptedIOException("Canceled");
+            }
+            try {
+                Thread.sleep(Math.min(remaining, SLEEP_SLICE_MILLIS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted between retries");
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.minecraft.devcommands.api;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How often and how far apart to retry a failed request. Delays use
+ * decorrelated jitter: each is random between the base delay and three times
+ * the previous one, capped, so clients that failed together don't retry in
+ * step.
+ */
+public class RetryPolicy {
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(0, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Attempts in total, including the first.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * The delay before the next attempt, given the previous delay (0 before
+     * the first retry).
+     */
+    public long nextDelayMillis(long previousMillis) {
+        long upper = Math.max(baseDelayMillis, previousMillis * 3);
+        if (upper <= baseDelayMillis) {
+            return Math.min(maxDelayMillis, baseDelayMillis);
+        }
+        return Math.min(maxDelayMillis, ThreadLocalRandom.current().nextLong(baseDelayMillis, upper + 1));
+    }
+}
@@ -1,11 +1,27 @@
 package com.minecraft.devcommands.api;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
 public class ToolDefinitions {
-
+    // Built and serialized once, so every chat request carries byte-identical tool JSON
+    private static final JsonArray MINECRAFT_TOOLS = buildMinecraftTools();
+    private static final String MINECRAFT_TOOLS_JSON = new Gson().toJson(MINECRAFT_TOOLS);
+
+    /**
+     * Returns a copy of the tool schema; use {@link #getMinecraftToolsJson()} when
+     * only the serialized form is needed.
+     */
     public static JsonArray getMinecraftTools() {
+        return MINECRAFT_TOOLS.deepCopy();
+    }
+
+    public static String getMinecraftToolsJson() {
+        return MINECRAFT_TOOLS_JSON;
+    }
+
+    private static JsonArray buildMinecraftTools() {
         JsonArray tools = new JsonArray();
 
         // Git PR List tool
@@ -53,12 +69,17 @@ public class ToolDefinitions {
 
         // Jira Create tool
         JsonObject jiraCreateParams = new JsonObject();
-        addEnumProperty(jiraCreateParams, "issue_type", "Type of issue", new String[]{"Bug", "Task", "Story"}, true);
-        addStringProperty(jiraCreateParams, "summary", "Brief summary of the issue", true);
+        addEnumProperty(jiraCreateParams, "issue_type", "Type of issue", new String[]{"Bug", "Task", "Story"}, false);
+        addStringProperty(jiraCreateParams, "summary", "Brief summary of the issue", false);
         addStringProperty(jiraCreateParams, "description", "Detailed description", false);
+        JsonObject jiraIssueParams = new JsonObject();
+        addEnumProperty(jiraIssueParams, "issue_type", "Type of issue", new String[]{"Bug", "Task", "Story"}, true);
+        addStringProperty(jiraIssueParams, "summary", "Brief summary of the issue", true);
+        addStringProperty(jiraIssueParams, "description", "Detailed description", false);
+        addObjectArrayProperty(jiraCreateParams, "issues", "Several issues to create at once, instead of issue_type/summary", jiraIssueParams, false);
         tools.add(createTool(
             "jira_create",
-            "Create a new Jira issue",
+            "Create one Jira issue (issue_type + summary) or several at once (issues)",
             jiraCreateParams
         ));
 
@@ -162,4 +183,28 @@ public class ToolDefinitions {
             params.getAsJsonArray("required").add(name);
         }
     }
+
+    private static void addObjectArrayProperty(JsonObject params, String name, String description, JsonObject itemParams, boolean required) {
+        if (!params.has("properties")) {
+            params.add("properties", new JsonObject());
+        }
+        if (!params.has("required")) {
+            params.add("required", new JsonArray());
+        }
+
+        JsonObject items = new JsonObject();
+        items.addProperty("type", "object");
+        items.add("properties", itemParams.getAsJsonObject("properties"));
+        items.add("required", itemParams.has("required") ? itemParams.getAsJsonArray("required") : new JsonArray());
+
+        JsonObject property = new JsonObject();
+        property.addProperty("type", "array");
+        property.addProperty("description", description);
+        property.add("items", items);
+        params.getAsJsonObject("properties").add(name, property);
+
+        if (required) {
+            params.getAsJsonArray("required").add(name);
+        }
+    }
 }
@@ -0,0 +1,231 @@
+package com.minecraft.devcommands.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the tools worth offering the model for one message, so a greeting
+ * doesn't carry the whole tool schema. Tools are scored by keyword overlap
+ * with the message through an inverted term index, which keeps selection cost
+ * independent of how many tools exist. Each distinct subset is serialized once
+ * and reused, so its request prefix stays byte-identical.
+ */
+public class ToolSelector {
+    /**
+     * Words players use for each tool beyond its name and description.
+     */
+    private static final Map<String, String> KEYWORDS = Map.of(
+        "git_pr_list", "pr prs pull request open merge merged review branch",
+        "git_pr_review", "pr pull request review feedback diff change changes latest",
+        "git_set_repo", "repo repository switch change set use project",
+        "jira_list", "jira issue issues ticket tickets bug bugs task tasks mine assigned backlog sprint open",
+        "jira_view", "jira issue ticket detail details status description",
+        "jira_create", "jira create new file open report bug task story ticket",
+        "code_explain", "explain code file class function method does work how what",
+        "git_list_files", "file files directory folder structure tree list repo repository contain contains",
+        "git_search_code", "search find where grep usage usages defined function class method import code"
+    );
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "the", "and", "for", "with", "this", "that", "are", "you", "can", "get", "all", "any",
+        "from", "its", "our", "was", "please", "me", "my", "is", "in", "of", "to", "a", "an", "it", "or", "on");
+
+    // Messages made only of these words are small talk and get no tools
+    private static final Set<String> SMALL_TALK = Set.of(
+        "hi", "hello", "hey", "yo", "sup", "thank", "thanks", "thx", "ty", "ok", "okay", "cool", "nice",
+        "great", "bye", "cya", "lol", "good", "morning", "evening", "night", "how", "doing", "going");
+
+    private static final Pattern ISSUE_KEY = Pattern.compile("\\b[A-Z][A-Z0-9]+-\\d+\\b");
+    private static final Pattern FILE_PATH = Pattern.compile("[\\w-]+(/[\\w.-]+)+|\\b[\\w-]+\\.[a-z]{1,5}\\b");
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int KEYWORD_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    /**
+     * The full catalogue, used when selection is off or the model asks for a
+     * tool that was left out.
+     */
+    public static final ToolSet ALL = new ToolSet(toolNames(ToolDefinitions.getMinecraftTools()),
+        ToolDefinitions.getMinecraftToolsJson());
+
+    /**
+     * No tools at all, for explicit small talk.
+     */
+    public static final ToolSet NONE = new ToolSet(Collections.emptyList(), null);
+
+    private final List<String> names = new ArrayList<>();
+    private final List<JsonObject> definitions = new ArrayList<>();
+    private final Map<String, Map<Integer, Integer>> index = new HashMap<>();
+    private final Map<String, ToolSet> subsets = new ConcurrentHashMap<>();
+    private final int topK;
+    private final Gson gson = new Gson();
+
+    public ToolSelector(int topK) {
+        this.topK = topK;
+
+        JsonArray tools = ToolDefinitions.getMinecraftTools();
+        for (JsonElement element : tools) {
+            JsonObject function = element.getAsJsonObject().getAsJsonObject("function");
+            String name = function.get("name").getAsString();
+            int tool = names.size();
+            names.add(name);
+            definitions.add(element.getAsJsonObject());
+
+            addTerms(tool, name.replace('_', ' '), NAME_WEIGHT);
+            addTerms(tool, KEYWORDS.getOrDefault(name, ""), KEYWORD_WEIGHT);
+            addTerms(tool, function.get("description").getAsString(), DESCRIPTION_WEIGHT);
+        }
+    }
+
+    /**
+     * Up to top-k tools relevant to {@code message}, in catalogue order.
+     * Small talk gets {@link #NONE}; any other message that matches nothing
+     * gets {@link #ALL}, since missing keywords don't mean no tool applies.
+     */
+    public ToolSet select(String message) {
+        int[] scores = new int[names.size()];
+        for (String term : terms(message)) {
+            Map<Integer, Integer> postings = index.get(term);
+            if (postings != null) {
+                for (Map.Entry<Integer, Integer> posting : postings.entrySet()) {
+                    scores[posting.getKey()] += posting.getValue();
+                }
+            }
+        }
+
+        // Shapes the words don't capture
+        if (ISSUE_KEY.matcher(message).find()) {
+            boost(scores, "jira_view", KEYWORD_WEIGHT * 2);
+        }
+        if (FILE_PATH.matcher(message).find()) {
+            boost(scores, "code_explain", KEYWORD_WEIGHT);
+        }
+
+        List<Integer> ranked = new ArrayList<>();
+        for (int tool = 0; tool < scores.length; tool++) {
+            if (scores[tool] > 0) {
+                ranked.add(tool);
+            }
+        }
+        if (ranked.isEmpty()) {
+            return isSmallTalk(message) ? NONE : ALL;
+        }
+        if (ranked.size() >= names.size() && topK >= names.size()) {
+            return ALL;
+        }
+
+        ranked.sort((a, b) -> scores[b] != scores[a] ? scores[b] - scores[a] : a - b);
+        List<Integer> chosen = new ArrayList<>(ranked.subList(0, Math.min(topK, ranked.size())));
+        Collections.sort(chosen);
+
+        List<String> chosenNames = new ArrayList<>();
+        for (int tool : chosen) {
+            chosenNames.add(names.get(tool));
+        }
+        return subsets.computeIfAbsent(String.join(",", chosenNames), key -> {
+            JsonArray subset = new JsonArray();
+            for (int tool : chosen) {
+                subset.add(definitions.get(tool));
+            }
+            return new ToolSet(chosenNames, gson.toJson(subset));
+        });
+    }
+
+    private static boolean isSmallTalk(String message) {
+        for (String word : message.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (!word.isEmpty() && !SMALL_TALK.contains(word) && !STOP_WORDS.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void boost(int[] scores, String name, int amount) {
+        int tool = names.indexOf(name);
+        if (tool >= 0) {
+            scores[tool] += amount;
+        }
+    }
+
+    private void addTerms(int tool, String text, int weight) {
+        for (String term : terms(text)) {
+            index.computeIfAbsent(term, t -> new HashMap<>()).merge(tool, weight, Math::max);
+        }
+    }
+
+    private static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (word.length() < 2 || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            // Crude plural folding: "issues" and "issue" share a term
+            if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+                word = word.substring(0, word.length() - 1);
+            }
+            terms.add(word);
+        }
+        return terms;
+    }
+
+    private static List<String> toolNames(JsonArray tools) {
+        List<String> names = new ArrayList<>();
+        for (JsonElement element : tools) {
+            names.add(element.getAsJsonObject().getAsJsonObject("function").get("name").getAsString());
+        }
+        return names;
+    }
+
+    /**
+     * An immutable tool subset with its serialized schema.
+     */
+    public static class ToolSet {
+        private final Set<String> names;
+        private final String json;
+        private final String key;
+
+        ToolSet(Collection<String> names, String json) {
+            this.names = Collections.unmodifiableSet(new LinkedHashSet<>(names));
+            this.json = json;
+            this.key = String.join(",", names);
+        }
+
+        public Set<String> getNames() {
+            return names;
+        }
+
+        /**
+         * The tools array as JSON, or null for the empty set.
+         */
+        public String getJson() {
+            return json;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public boolean isEmpty() {
+            return names.isEmpty();
+        }
+
+        public boolean contains(String name) {
+            return names.contains(name);
+        }
+    }
+}
@@ -3,28 +3,81 @@ package com.minecraft.devcommands.api;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.minecraft.devcommands.cache.ResponseCache;
+import com.minecraft.devcommands.utils.CancellationToken;
 import okhttp3.*;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class VLLMClient {
+    /**
+     * Used when prompts.chat-system is not set. Keep it free of per-request
+     * details (player, time) so it stays part of the shared prefix.
+     */
+    public static final String DEFAULT_SYSTEM_PROMPT =
+        "You are an assistant for a development team, answering inside a Minecraft server. "
+        + "Use the provided tools to look up GitHub and Jira data when a question needs it. "
+        + "Keep answers short and plain; they are shown in Minecraft chat or books.";
+
+    /**
+     * Name of the profile built from the top-level vllm settings.
+     */
+    public static final String DEFAULT_PROFILE = "default";
+
+    // The user turn goes between the prefix and one of these
+    private static final String TOOLS_SUFFIX = "}],\"tool_choice\":\"auto\"}";
+    private static final String NO_TOOLS_SUFFIX = "}],\"tool_choice\":\"none\"}";
+    private static final String TOOLLESS_SUFFIX = "}]}";
+
+    /**
+     * What a request is for. Each phase is served by a configurable profile, so
+     * short structured decisions can go to a small, fast model.
+     */
+    public enum Phase {
+        /** Deciding which tools to call. */
+        TOOLS,
+        /** Turning tool results into the answer. */
+        SUMMARY,
+        /** Answering without tools. */
+        ANSWER,
+        /** Pull request reviews. */
+        REVIEW,
+        /** Code explanations. */
+        EXPLAIN
+    }
+
     private final OkHttpClient client;
-    private final String url;
-    private final String model;
-    private final int maxTokens;
-    private final double temperature;
-    private final String apiToken;
+    private final String systemPrompt;
+    private final ResponseCache responseCache;
+    private final Map<String, Profile> profiles = new ConcurrentHashMap<>();
+    private final Map<Phase, String> routing = new EnumMap<>(Phase.class);
     private final Gson gson;
     private final Logger logger;
-
-    public VLLMClient(String url, String model, int maxTokens, double temperature, int timeout, String apiToken, Logger logger) {
-        this.url = url;
-        this.model = model;
-        this.maxTokens = maxTokens;
-        this.temperature = temperature;
-        this.apiToken = apiToken;
+    // -1 while hedging is off
+    private volatile long hedgeMinDelayMillis = -1;
+    private volatile CompletionBatcher batcher;
+
+    /**
+     * @param urls one or more replicas serving {@code model}
+     * @param resilience retries and circuit breakers, shared by every profile
+     */
+    public VLLMClient(List<String> urls, String model, int maxTokens, double temperature, int timeout, String apiToken,
+                      String systemPrompt, ResponseCache responseCache, LatencyTracker latency,
+                      ResilienceInterceptor resilience, Logger logger) {
+        this.systemPrompt = systemPrompt != null && !systemPrompt.isBlank() ? systemPrompt.trim() : DEFAULT_SYSTEM_PROMPT;
+        this.responseCache = responseCache;
         this.logger = logger;
         this.gson = new Gson();
 
@@ -32,90 +85,384 @@ public class VLLMClient {
             .connectTimeout(timeout, TimeUnit.SECONDS)
             .readTimeout(timeout, TimeUnit.SECONDS)
             .writeTimeout(timeout, TimeUnit.SECONDS)
+            .addInterceptor(new CancellationInterceptor())
+            .addInterceptor(resilience)
+            .build();
+        // Hedged requests are enqueued, and OkHttp allows only 5 per host by default
+        this.client.dispatcher().setMaxRequestsPerHost(64);
+
+        addProfile(new ModelProfile(DEFAULT_PROFILE, urls, model, maxTokens, temperature, timeout, apiToken), latency);
+    }
+
+    /**
+     * Races a second replica against any request slower than the recent p95
+     * (and at least {@code minDelayMillis}), keeping whichever answers first.
+     * Only applies to profiles with more than one URL.
+     */
+    public void enableHedging(long minDelayMillis) {
+        this.hedgeMinDelayMillis = Math.max(0, minDelayMillis);
+    }
+
+    /**
+     * Holds each {@link #complete} call for up to {@code windowMillis} so
+     * prompts for the same profile from different players go out as one
+     * request of at most {@code maxBatch} prompts.
+     */
+    public void enableBatching(long windowMillis, int maxBatch) {
+        this.batcher = new CompletionBatcher(windowMillis, maxBatch);
+    }
+
+    /**
+     * Registers (or replaces) a named profile. Profiles share one connection
+     * pool but each tracks its own latency, so a small fast model gets tighter
+     * timeouts than a large one.
+     */
+    public void addProfile(ModelProfile settings, LatencyTracker latency) {
+        OkHttpClient profileClient = client.newBuilder()
+            .connectTimeout(settings.timeoutSeconds, TimeUnit.SECONDS)
+            .readTimeout(settings.timeoutSeconds, TimeUnit.SECONDS)
+            .writeTimeout(settings.timeoutSeconds, TimeUnit.SECONDS)
+            .eventListenerFactory(latency.listenerFactory())
             .build();
+        profiles.put(settings.name, new Profile(settings, profileClient, latency,
+            responseCache != null && responseCache.accepts(settings.temperature)));
+    }
+
+    /**
+     * Sends {@code phase} requests to the named profile. Unknown names fall
+     * back to the default profile.
+     */
+    public synchronized void route(Phase phase, String profileName) {
+        if (!profiles.containsKey(profileName)) {
+            logger.warning("Unknown vLLM profile '" + profileName + "' for " + phase + ", using default");
+            profileName = DEFAULT_PROFILE;
+        }
+        routing.put(phase, profileName);
+    }
+
+    /**
+     * Whether two phases are served by the same profile.
+     */
+    public boolean sameProfile(Phase a, Phase b) {
+        return profile(a) == profile(b);
     }
 
     public String complete(String prompt) throws IOException {
+        return complete(prompt, Phase.ANSWER);
+    }
+
+    public String complete(String prompt, Phase phase) throws IOException {
+        Profile profile = profile(phase);
+        ModelProfile settings = profile.settings;
+
         // Try OpenAI-compatible API format first
-        String endpoint = url.endsWith("/") ? url + "v1/completions" : url + "/v1/completions";
+        String endpoint = endpoint(settings.url, "v1/completions");
 
         JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("model", model);
+        requestBody.addProperty("model", settings.model);
         requestBody.addProperty("prompt", prompt);
-        requestBody.addProperty("max_tokens", maxTokens);
-        requestBody.addProperty("temperature", temperature);
+        requestBody.addProperty("max_tokens", settings.maxTokens);
+        requestBody.addProperty("temperature", settings.temperature);
         requestBody.addProperty("stream", false);
 
-        RequestBody body = RequestBody.create(
-            gson.toJson(requestBody),
-            MediaType.parse("application/json")
-        );
+        String cacheKey = profile.cacheable ? ResponseCache.key(endpoint, requestBody) : null;
+        String cached = cacheKey != null ? responseCache.get(cacheKey) : null;
+        if (cached != null) {
+            return parseCompletion(gson.fromJson(cached, JsonObject.class));
+        }
 
-        Request.Builder requestBuilder = new Request.Builder()
-            .url(endpoint)
-            .post(body)
-            .header("Content-Type", "application/json");
+        if (batcher != null) {
+            String text = batcher.submit(profile, prompt, prompts -> completeBatch(profile, prompts));
+            if (cacheKey != null) {
+                responseCache.put(cacheKey, gson.toJson(completionResponse(text)));
+            }
+            return text;
+        }
 
-        // Add authorization header if API token is provided
-        if (apiToken != null && !apiToken.isEmpty()) {
-            requestBuilder.header("Authorization", "Bearer " + apiToken);
+        String responseBody = post(profile, "v1/completions", gson.toJson(requestBody), "vLLM request failed");
+        String text = parseCompletion(gson.fromJson(responseBody, JsonObject.class));
+        if (cacheKey != null) {
+            responseCache.put(cacheKey, responseBody);
+        }
+        return text;
+    }
+
+    /**
+     * One /v1/completions request for several prompts. Choices come back
+     * tagged with the index of their prompt.
+     */
+    private List<String> completeBatch(Profile profile, List<String> prompts) throws IOException {
+        ModelProfile settings = profile.settings;
+
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("model", settings.model);
+        if (prompts.size() == 1) {
+            requestBody.addProperty("prompt", prompts.get(0));
+        } else {
+            JsonArray promptArray = new JsonArray();
+            prompts.forEach(promptArray::add);
+            requestBody.add("prompt", promptArray);
         }
+        requestBody.addProperty("max_tokens", settings.maxTokens);
+        requestBody.addProperty("temperature", settings.temperature);
+        requestBody.addProperty("stream", false);
 
-        Request request = requestBuilder.build();
+        String responseBody = post(profile, "v1/completions", gson.toJson(requestBody), "vLLM request failed");
+        JsonObject json = gson.fromJson(responseBody, JsonObject.class);
+        if (!json.has("choices")) {
+            throw new IOException("Unexpected response format from vLLM");
+        }
 
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No error details";
-                throw new IOException("vLLM request failed: " + response.code() + " " + response.message() + "\n" + errorBody);
+        JsonArray choices = json.getAsJsonArray("choices");
+        String[] texts = new String[prompts.size()];
+        for (int i = 0; i < choices.size(); i++) {
+            JsonObject choice = choices.get(i).getAsJsonObject();
+            int index = choice.has("index") ? choice.get("index").getAsInt() : i;
+            if (index >= 0 && index < texts.length && choice.has("text")) {
+                texts[index] = choice.get("text").getAsString().trim();
             }
+        }
+        for (String text : texts) {
+            if (text == null) {
+                throw new IOException("vLLM returned " + choices.size() + " choices for " + prompts.size() + " prompts");
+            }
+        }
+        return List.of(texts);
+    }
 
-            String responseBody = response.body().string();
-            JsonObject json = gson.fromJson(responseBody, JsonObject.class);
+    /**
+     * The response one prompt of a batch would have had on its own, for the
+     * response cache.
+     */
+    private static JsonObject completionResponse(String text) {
+        JsonObject choice = new JsonObject();
+        choice.addProperty("index", 0);
+        choice.addProperty("text", text);
+        JsonArray choices = new JsonArray();
+        choices.add(choice);
+        JsonObject response = new JsonObject();
+        response.add("choices", choices);
+        return response;
+    }
 
-            // Parse OpenAI-compatible response
-            if (json.has("choices")) {
-                JsonArray choices = json.getAsJsonArray("choices");
-                if (choices.size() > 0) {
-                    JsonObject choice = choices.get(0).getAsJsonObject();
-                    if (choice.has("text")) {
-                        return choice.get("text").getAsString().trim();
-                    }
+    private String parseCompletion(JsonObject json) throws IOException {
+        // Parse OpenAI-compatible response
+        if (json.has("choices")) {
+            JsonArray choices = json.getAsJsonArray("choices");
+            if (choices.size() > 0) {
+                JsonObject choice = choices.get(0).getAsJsonObject();
+                if (choice.has("text")) {
+                    return choice.get("text").getAsString().trim();
                 }
             }
-
-            throw new IOException("Unexpected response format from vLLM");
         }
+
+        throw new IOException("Unexpected response format from vLLM");
+    }
+
+    /**
+     * Plain answer sharing the prefix of an earlier
+     * {@link #chatWithTools(String, ToolSelector.ToolSet)} call with the same
+     * tools; the model is told not to call them.
+     */
+    public String chat(String message, ToolSelector.ToolSet tools, Phase phase) throws IOException {
+        String suffix = tools.isEmpty() ? TOOLLESS_SUFFIX : NO_TOOLS_SUFFIX;
+        Profile profile = profile(phase);
+        ChatResponse response = executeChat(profile, profile.chatPrefix(tools) + gson.toJson(message) + suffix);
+        return response.content != null ? response.content : "";
     }
 
-    public String chat(String message) throws IOException {
-        return chat(message, null);
+    /**
+     * Chat offering {@code tools}. The body is the pre-serialized prefix with
+     * only the user turn spliced in.
+     */
+    public ChatResponse chatWithTools(String message, ToolSelector.ToolSet tools) throws IOException {
+        String suffix = tools.isEmpty() ? TOOLLESS_SUFFIX : TOOLS_SUFFIX;
+        Profile profile = profile(Phase.TOOLS);
+        return executeChat(profile, profile.chatPrefix(tools) + gson.toJson(message) + suffix);
     }
 
-    public ChatResponse chatWithTools(String message, JsonArray tools) throws IOException {
+    private ChatResponse executeChat(Profile profile, String json) throws IOException {
         // Try chat completions endpoint
-        String endpoint = url.endsWith("/") ? url + "v1/chat/completions" : url + "/v1/chat/completions";
+        String endpoint = endpoint(profile.settings.url, "v1/chat/completions");
 
-        JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("model", model);
-        requestBody.addProperty("max_tokens", maxTokens);
-        requestBody.addProperty("temperature", temperature);
-        requestBody.addProperty("stream", false);
+        // Tool results reach the model inside the message, so fresh data means a fresh key
+        String cacheKey = profile.cacheable ? ResponseCache.key(endpoint, json) : null;
+        String cached = cacheKey != null ? responseCache.get(cacheKey) : null;
+        if (cached != null) {
+            return parseChatResponse(gson.fromJson(cached, JsonObject.class));
+        }
 
-        JsonArray messages = new JsonArray();
-        JsonObject userMessage = new JsonObject();
-        userMessage.addProperty("role", "user");
-        userMessage.addProperty("content", message);
-        messages.add(userMessage);
-        requestBody.add("messages", messages);
+        String responseBody = post(profile, "v1/chat/completions", json, "Chat request failed");
+        ChatResponse chatResponse = parseChatResponse(gson.fromJson(responseBody, JsonObject.class));
+        if (cacheKey != null) {
+            responseCache.put(cacheKey, responseBody);
+        }
+        return chatResponse;
+    }
+
+    /**
+     * POSTs {@code json} to {@code path} on one of the profile's replicas and
+     * returns the response body. Connection errors, 5xx and 429 move on to the
+     * next replica; other errors are the request's fault and are thrown.
+     */
+    private String post(Profile profile, String path, String json, String errorPrefix) throws IOException {
+        EndpointPool pool = profile.pool;
+        long hedgeDelay = hedgeMinDelayMillis >= 0 && pool.size() > 1 ? pool.hedgeDelayMillis(hedgeMinDelayMillis) : -1;
+        if (hedgeDelay >= 0) {
+            return postHedged(profile, path, json, errorPrefix, hedgeDelay);
+        }
 
-        // Add tools if provided
-        if (tools != null && tools.size() > 0) {
-            requestBody.add("tools", tools);
-            requestBody.addProperty("tool_choice", "auto");
+        Set<EndpointPool.Endpoint> tried = new HashSet<>();
+        IOException failure = null;
+        EndpointPool.Endpoint endpoint;
+        while ((endpoint = pool.acquire(tried)) != null) {
+            tried.add(endpoint);
+            Call call = profile.http().newCall(buildRequest(profile, endpoint(endpoint.url, path), json));
+            long start = System.currentTimeMillis();
+            try (Response response = call.execute()) {
+                String body = readBody(response, errorPrefix);
+                pool.succeeded(endpoint, System.currentTimeMillis() - start);
+                return body;
+            } catch (IOException e) {
+                recordFailure(pool, endpoint, call, e);
+                if (CancellationInterceptor.wasCancelled(call, e) || !isReplicaFault(e)) {
+                    throw e;
+                }
+                if (pool.size() > 1) {
+                    logger.warning("vLLM replica " + endpoint + " failed, trying another: " + e.getMessage());
+                }
+                failure = e;
+            }
         }
+        throw failure != null ? failure : new IOException("No vLLM endpoint configured");
+    }
 
+    /**
+     * Sends to one replica and, if it hasn't answered within {@code delayMillis},
+     * to a second as well. The first success wins and the other call is
+     * cancelled, so the slower replica stops generating.
+     */
+    private String postHedged(Profile profile, String path, String json, String errorPrefix, long delayMillis)
+            throws IOException {
+        Set<EndpointPool.Endpoint> tried = new HashSet<>();
+        List<Call> calls = new ArrayList<>();
+        BlockingQueue<Attempt> outcomes = new LinkedBlockingQueue<>();
+        try {
+            int running = launch(profile, path, json, errorPrefix, tried, calls, outcomes) ? 1 : 0;
+            boolean hedged = false;
+            IOException failure = new IOException("No vLLM endpoint configured");
+            while (running > 0) {
+                Attempt attempt = hedged ? outcomes.take() : outcomes.poll(delayMillis, TimeUnit.MILLISECONDS);
+                if (attempt == null) {
+                    hedged = true;
+                    if (launch(profile, path, json, errorPrefix, tried, calls, outcomes)) {
+                        running++;
+                    }
+                    continue;
+                }
+
+                running--;
+                if (attempt.body != null) {
+                    return attempt.body;
+                }
+                failure = attempt.error;
+                if (CancellationInterceptor.wasCancelled(attempt.call, failure) || !isReplicaFault(failure)) {
+                    throw failure;
+                }
+                // Nothing left racing: fail over instead of waiting for a hedge
+                if (running == 0) {
+                    hedged = true;
+                    if (launch(profile, path, json, errorPrefix, tried, calls, outcomes)) {
+                        running++;
+                    }
+                }
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for vLLM");
+        } finally {
+            for (Call call : calls) {
+                call.cancel();
+            }
+        }
+    }
+
+    private boolean launch(Profile profile, String path, String json, String errorPrefix,
+                           Set<EndpointPool.Endpoint> tried, List<Call> calls, BlockingQueue<Attempt> outcomes) {
+        EndpointPool pool = profile.pool;
+        EndpointPool.Endpoint endpoint = pool.acquire(tried);
+        if (endpoint == null) {
+            return false;
+        }
+        tried.add(endpoint);
+
+        Call call = profile.http().newCall(buildRequest(profile, endpoint(endpoint.url, path), json));
+        calls.add(call);
+        // Enqueued calls run their interceptors on OkHttp's threads, away from the current token
+        CancellationToken token = CancellationToken.current();
+        if (token != null) {
+            token.onCancel(call::cancel);
+        }
+
+        long start = System.currentTimeMillis();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call failed, IOException e) {
+                recordFailure(pool, endpoint, failed, e);
+                outcomes.add(new Attempt(failed, null, e));
+            }
+
+            @Override
+            public void onResponse(Call answered, Response response) {
+                try {
+                    String body = readBody(response, errorPrefix);
+                    pool.succeeded(endpoint, System.currentTimeMillis() - start);
+                    outcomes.add(new Attempt(answered, body, null));
+                } catch (IOException e) {
+                    onFailure(answered, e);
+                } finally {
+                    response.close();
+                }
+            }
+        });
+        return true;
+    }
+
+    private static String readBody(Response response, String errorPrefix) throws IOException {
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "No error details";
+            throw new StatusException(response.code(),
+                errorPrefix + ": " + response.code() + " " + response.message() + "\n" + errorBody);
+        }
+        return response.body().string();
+    }
+
+    private static void recordFailure(EndpointPool pool, EndpointPool.Endpoint endpoint, Call call, IOException e) {
+        if (CancellationInterceptor.wasCancelled(call, e) || !isReplicaFault(e)) {
+            pool.abandoned(endpoint);
+        } else {
+            pool.failed(endpoint);
+        }
+    }
+
+    /**
+     * Whether another replica might do better: the connection failed, or the
+     * server was overloaded or broken, rather than the request being bad.
+     */
+    private static boolean isReplicaFault(IOException e) {
+        if (!(e instanceof StatusException)) {
+            return true;
+        }
+        int code = ((StatusException) e).code;
+        return code >= 500 || code == 429;
+    }
+
+    private Request buildRequest(Profile profile, String endpoint, String json) {
+        ModelProfile settings = profile.settings;
         RequestBody body = RequestBody.create(
-            gson.toJson(requestBody),
+            json,
             MediaType.parse("application/json")
         );
 
@@ -123,30 +470,34 @@ public class VLLMClient {
             .url(endpoint)
             .post(body)
             .header("Content-Type", "application/json");
+        // Generating changes nothing, so a lone server is retried; with replicas
+        // a failure moves straight on to the next one instead
+        if (profile.pool.size() == 1) {
+            ResilienceInterceptor.idempotent(requestBuilder);
+        }
 
         // Add authorization header if API token is provided
-        if (apiToken != null && !apiToken.isEmpty()) {
-            requestBuilder.header("Authorization", "Bearer " + apiToken);
+        if (settings.apiToken != null && !settings.apiToken.isEmpty()) {
+            requestBuilder.header("Authorization", "Bearer " + settings.apiToken);
         }
 
-        Request request = requestBuilder.build();
-
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No error details";
-                throw new IOException("Chat request failed: " + response.code() + "\n" + errorBody);
-            }
+        return requestBuilder.build();
+    }
 
-            String responseBody = response.body().string();
-            JsonObject json = gson.fromJson(responseBody, JsonObject.class);
+    private synchronized Profile profile(Phase phase) {
+        Profile profile = profiles.get(routing.getOrDefault(phase, DEFAULT_PROFILE));
+        return profile != null ? profile : profiles.get(DEFAULT_PROFILE);
+    }
 
-            return parseChatResponse(json);
-        }
+    private static String endpoint(String url, String path) {
+        return url.endsWith("/") ? url + path : url + "/" + path;
     }
 
-    public String chat(String message, JsonArray tools) throws IOException {
-        ChatResponse response = chatWithTools(message, tools);
-        return response.content != null ? response.content : "";
+    private static JsonObject message(String role, String content) {
+        JsonObject message = new JsonObject();
+        message.addProperty("role", role);
+        message.addProperty("content", content);
+        return message;
     }
 
     private ChatResponse parseChatResponse(JsonObject json) throws IOException {
@@ -180,6 +531,39 @@ public class VLLMClient {
         return response;
     }
 
+    public String getModel() {
+        return getModel(Phase.ANSWER);
+    }
+
+    public String getModel(Phase phase) {
+        return profile(phase).settings.model;
+    }
+
+    private static class Attempt {
+        final Call call;
+        final String body;
+        final IOException error;
+
+        Attempt(Call call, String body, IOException error) {
+            this.call = call;
+            this.body = body;
+            this.error = error;
+        }
+    }
+
+    /**
+     * A non-2xx reply, kept apart from connection errors so failover can tell
+     * a bad request from a bad replica.
+     */
+    private static class StatusException extends IOException {
+        final int code;
+
+        StatusException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
     public static class ChatResponse {
         public String content;
         public JsonArray toolCalls;
@@ -189,6 +573,89 @@ public class VLLMClient {
         }
     }
 
+    /**
+     * Connection and sampling settings for one model endpoint.
+     */
+    public static class ModelProfile {
+        public final String name;
+        public final String url;
+        public final List<String> urls;
+        public final String model;
+        public final int maxTokens;
+        public final double temperature;
+        public final int timeoutSeconds;
+        public final String apiToken;
+
+        public ModelProfile(String name, String url, String model, int maxTokens, double temperature,
+                            int timeoutSeconds, String apiToken) {
+            this(name, List.of(url), model, maxTokens, temperature, timeoutSeconds, apiToken);
+        }
+
+        /**
+         * A profile served by several replicas; the first URL also names the
+         * endpoint in response cache keys.
+         */
+        public ModelProfile(String name, List<String> urls, String model, int maxTokens, double temperature,
+                            int timeoutSeconds, String apiToken) {
+            this.name = name;
+            this.url = urls.get(0);
+            this.urls = List.copyOf(urls);
+            this.model = model;
+            this.maxTokens = maxTokens;
+            this.temperature = temperature;
+            this.timeoutSeconds = timeoutSeconds;
+            this.apiToken = apiToken;
+        }
+    }
+
+    private class Profile {
+        final ModelProfile settings;
+        final OkHttpClient client;
+        final LatencyTracker latency;
+        final EndpointPool pool;
+        final boolean cacheable;
+        final Map<String, String> chatPrefixes = new ConcurrentHashMap<>();
+
+        Profile(ModelProfile settings, OkHttpClient client, LatencyTracker latency, boolean cacheable) {
+            this.settings = settings;
+            this.client = client;
+            this.latency = latency;
+            this.pool = new EndpointPool(settings.urls);
+            this.cacheable = cacheable;
+        }
+
+        /**
+         * The client with timeouts fitted to this profile's recent latency.
+         */
+        OkHttpClient http() {
+            return latency.adapt(client);
+        }
+
+        String chatPrefix(ToolSelector.ToolSet tools) {
+            return chatPrefixes.computeIfAbsent(tools.getKey(), key -> buildChatPrefix(tools.getJson()));
+        }
+
+        /**
+         * Everything before the user turn: settings, tools, the system message and
+         * the opening of the user message. Serialized once per tool set so every
+         * request with those tools starts with the same bytes, which is what vLLM's
+         * prefix cache keys on.
+         */
+        private String buildChatPrefix(String toolsJson) {
+            JsonObject head = new JsonObject();
+            head.addProperty("model", settings.model);
+            head.addProperty("max_tokens", settings.maxTokens);
+            head.addProperty("temperature", settings.temperature);
+            head.addProperty("stream", false);
+            String json = gson.toJson(head);
+
+            return json.substring(0, json.length() - 1)
+                + (toolsJson != null ? ",\"tools\":" + toolsJson : "")
+                + ",\"messages\":[" + gson.toJson(message("system", systemPrompt))
+                + ",{\"role\":\"user\",\"content\":";
+        }
+    }
+
     public void shutdown() {
         client.dispatcher().executorService().shutdown();
         client.connectionPool().evictAll();
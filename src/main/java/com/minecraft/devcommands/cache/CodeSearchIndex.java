@@ -0,0 +1,719 @@
+package com.minecraft.devcommands.cache;
+
+import com.minecraft.devcommands.api.GitHubClient;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Local code search for one repository, used instead of GitHub's rate-limited
+ * {@code /search/code}. The repository is snapshotted from a tarball into two
+ * memory-mapped files per commit:
+ *
+ * <pre>
+ * docs-&lt;commit&gt;.bin      header, then per file: path, blob SHA, flags, UTF-8 text
+ * postings-&lt;commit&gt;.bin  sorted trigram keys, offsets, delta-varint doc id lists
+ * </pre>
+ *
+ * When the head moves, only files whose blob SHA changed are fetched and
+ * tokenized; postings of unchanged files are carried over by remapping doc ids.
+ */
+public class CodeSearchIndex {
+    private static final int DOCS_MAGIC = 0x44435344;     // "DCSD"
+    private static final int POSTINGS_MAGIC = 0x44435350; // "DCSP"
+    private static final int VERSION = 1;
+    private static final byte FLAG_INDEXED = 1;
+
+    // Beyond this many changed files one tarball beats per-file fetches
+    private static final int INCREMENTAL_LIMIT = 200;
+
+    private final File directory;
+    private final String repository;
+    private final long maxFileBytes;
+    private final Logger logger;
+    private final ExecutorService executor;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile Segment current;
+
+    public CodeSearchIndex(File baseDirectory, String repository, long maxFileBytes, Logger logger) {
+        this.directory = new File(baseDirectory, repository.replace('/', '_'));
+        this.repository = repository;
+        this.maxFileBytes = maxFileBytes;
+        this.logger = logger;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "DevCommands-CodeSearch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            logger.warning("Could not create search index directory: " + directory);
+        }
+        load();
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    /**
+     * Commit the index was built from, or null while the first build is running.
+     */
+    public String getCommit() {
+        Segment segment = current;
+        return segment != null ? segment.commit : null;
+    }
+
+    /**
+     * Brings the index up to the current default branch head on the background
+     * thread. Concurrent requests collapse into one refresh.
+     */
+    public void requestRefresh(GitHubClient github) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                refresh(github);
+            } catch (Exception e) {
+                logger.warning("Code search index refresh failed for " + repository + ": " + e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs a query against the local index. Whitespace-separated terms must all
+     * match (case-insensitive substring of the file text or path). The qualifiers
+     * {@code path:}, {@code filename:} and {@code extension:} filter by path.
+     *
+     * @return null if no index has been built yet
+     */
+    public Result search(String query, int limit) {
+        Segment segment = current;
+        if (segment == null) {
+            return null;
+        }
+
+        List<String> terms = new ArrayList<>();
+        List<String> pathFilters = new ArrayList<>();
+        List<String> nameFilters = new ArrayList<>();
+        for (String raw : query.trim().split("\\s+")) {
+            String term = raw.replace("\"", "").toLowerCase(Locale.ROOT);
+            if (term.isEmpty()) {
+                continue;
+            }
+            if (term.startsWith("path:")) {
+                pathFilters.add(term.substring(5));
+            } else if (term.startsWith("filename:")) {
+                nameFilters.add(term.substring(9));
+            } else if (term.startsWith("extension:")) {
+                nameFilters.add("." + term.substring(10));
+            } else if (!term.startsWith("repo:") && !term.startsWith("language:")) {
+                terms.add(term);
+            }
+        }
+
+        // Narrow candidates with trigram postings before touching any text
+        int[] candidates = null;
+        for (String term : terms) {
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                int[] postings = segment.postings(trigram(term.charAt(i), term.charAt(i + 1), term.charAt(i + 2)));
+                candidates = candidates == null ? postings : intersect(candidates, postings);
+                if (candidates.length == 0) {
+                    return new Result(segment.commit, 0, new ArrayList<>());
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        int docCount = candidates != null ? candidates.length : segment.paths.length;
+        for (int c = 0; c < docCount; c++) {
+            int doc = candidates != null ? candidates[c] : c;
+            if (!segment.indexed[doc]) {
+                continue;
+            }
+            String path = segment.paths[doc];
+            String lowerPath = path.toLowerCase(Locale.ROOT);
+            if (!matchesFilters(lowerPath, pathFilters, nameFilters)) {
+                continue;
+            }
+
+            Hit hit = terms.isEmpty() ? new Hit(path, 0, "", 1) : match(path, lowerPath, segment.text(doc), terms);
+            if (hit != null) {
+                hits.add(hit);
+            }
+        }
+
+        hits.sort((a, b) -> a.score != b.score ? Integer.compare(b.score, a.score) : a.path.compareTo(b.path));
+        int total = hits.size();
+        return new Result(segment.commit, total, new ArrayList<>(hits.subList(0, Math.min(limit, total))));
+    }
+
+    private static boolean matchesFilters(String lowerPath, List<String> pathFilters, List<String> nameFilters) {
+        for (String filter : pathFilters) {
+            if (!lowerPath.contains(filter)) {
+                return false;
+            }
+        }
+        String name = lowerPath.substring(lowerPath.lastIndexOf('/') + 1);
+        for (String filter : nameFilters) {
+            if (filter.startsWith(".") ? !name.endsWith(filter) : !name.contains(filter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Hit match(String path, String lowerPath, String text, List<String> terms) {
+        String lowerText = text.toLowerCase(Locale.ROOT);
+        int score = 0;
+        int firstMatch = -1;
+
+        for (String term : terms) {
+            boolean inPath = lowerPath.contains(term);
+            int count = 0;
+            int at = lowerText.indexOf(term);
+            if (at != -1 && (firstMatch == -1 || at < firstMatch)) {
+                firstMatch = at;
+            }
+            while (at != -1 && count < 100) {
+                count++;
+                at = lowerText.indexOf(term, at + term.length());
+            }
+            if (count == 0 && !inPath) {
+                return null;
+            }
+            score += count + (inPath ? 10 : 0);
+        }
+
+        if (firstMatch == -1) {
+            return new Hit(path, 0, "", score);
+        }
+
+        int lineStart = text.lastIndexOf('\n', firstMatch) + 1;
+        int lineEnd = text.indexOf('\n', firstMatch);
+        if (lineEnd == -1) {
+            lineEnd = text.length();
+        }
+        int lineNumber = 1;
+        for (int i = 0; i < lineStart; i++) {
+            if (text.charAt(i) == '\n') {
+                lineNumber++;
+            }
+        }
+        return new Hit(path, lineNumber, text.substring(lineStart, lineEnd).trim(), score);
+    }
+
+    private synchronized void refresh(GitHubClient github) throws IOException {
+        String head = github.getHeadSha();
+        Segment segment = current;
+        if (segment != null && segment.commit.equals(head)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Segment next = null;
+        String mode = "full";
+        if (segment != null) {
+            RepoTreeIndex tree = github.getTreeIndex();
+            if (!tree.isTruncated()) {
+                next = updateIncremental(github, segment, tree);
+                mode = "incremental";
+            }
+        }
+        if (next == null) {
+            next = buildFromTarball(github, head);
+            mode = "full";
+        }
+
+        current = next;
+        Files.write(new File(directory, "HEAD").toPath(), next.commit.getBytes(StandardCharsets.UTF_8));
+        deleteStaleFiles(next.commit);
+
+        logger.info(String.format("Code search index for %s @ %s: %d files (%s, %d ms)", repository,
+            next.commit.substring(0, Math.min(7, next.commit.length())), next.paths.length, mode,
+            System.currentTimeMillis() - start));
+    }
+
+    private Segment buildFromTarball(GitHubClient github, String commit) throws IOException {
+        File docsFile = new File(directory, "docs-" + commit + ".bin");
+        File docsTemp = new File(directory, docsFile.getName() + ".tmp");
+        Map<Long, IntList> postings = new HashMap<>();
+
+        try (DocWriter writer = new DocWriter(docsTemp, commit)) {
+            github.downloadTarball(commit, maxFileBytes, (path, data, size, linkTarget) -> {
+                if (linkTarget != null) {
+                    writer.write(path, ContentCache.gitBlobSha(linkTarget.getBytes(StandardCharsets.UTF_8)), null);
+                } else if (data == null || isBinary(data)) {
+                    // Too large or binary: remember the path so incremental updates don't refetch it
+                    writer.write(path, data != null ? ContentCache.gitBlobSha(data) : new byte[20], null);
+                } else {
+                    int doc = writer.write(path, ContentCache.gitBlobSha(data), data);
+                    addTrigrams(postings, doc, path, new String(data, StandardCharsets.UTF_8));
+                }
+            });
+        }
+
+        return commitSegment(commit, docsTemp, docsFile, postings);
+    }
+
+    private Segment updateIncremental(GitHubClient github, Segment old, RepoTreeIndex tree) throws IOException {
+        String commit = tree.getCommit();
+        Map<String, Integer> oldDocs = new HashMap<>();
+        for (int i = 0; i < old.paths.length; i++) {
+            oldDocs.put(old.paths[i], i);
+        }
+
+        List<String> changed = new ArrayList<>();
+        boolean[] unchanged = new boolean[old.paths.length];
+        for (String path : tree.getFilePaths()) {
+            Integer doc = oldDocs.get(path);
+            if (doc != null && old.shas[doc].equals(tree.findFile(path).getSha())) {
+                unchanged[doc] = true;
+            } else {
+                changed.add(path);
+            }
+        }
+
+        // Unchanged docs keep their relative order, so remapped postings stay sorted
+        int[] remap = new int[old.paths.length];
+        int carried = 0;
+        for (int doc = 0; doc < remap.length; doc++) {
+            remap[doc] = unchanged[doc] ? carried++ : -1;
+        }
+
+        if (changed.size() > INCREMENTAL_LIMIT) {
+            return null;
+        }
+
+        File docsFile = new File(directory, "docs-" + commit + ".bin");
+        File docsTemp = new File(directory, docsFile.getName() + ".tmp");
+
+        // Carry over postings of unchanged files without re-tokenizing them
+        Map<Long, IntList> postings = old.decodePostings(remap);
+
+        try (DocWriter writer = new DocWriter(docsTemp, commit)) {
+            for (int doc = 0; doc < old.paths.length; doc++) {
+                if (remap[doc] != -1) {
+                    writer.write(old.paths[doc], ContentCache.fromHex(old.shas[doc]), old.indexed[doc] ? old.textBytes(doc) : null);
+                }
+            }
+            for (String path : changed) {
+                RepoTreeIndex.Node node = tree.findFile(path);
+                byte[] sha = ContentCache.fromHex(node.getSha());
+                if (node.size > maxFileBytes) {
+                    writer.write(path, sha, null);
+                    continue;
+                }
+                byte[] data = github.getFile(path).content.getBytes(StandardCharsets.UTF_8);
+                if (isBinary(data)) {
+                    writer.write(path, sha, null);
+                } else {
+                    int doc = writer.write(path, sha, data);
+                    addTrigrams(postings, doc, path, new String(data, StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        return commitSegment(commit, docsTemp, docsFile, postings);
+    }
+
+    private Segment commitSegment(String commit, File docsTemp, File docsFile, Map<Long, IntList> postings) throws IOException {
+        File postingsFile = new File(directory, "postings-" + commit + ".bin");
+        File postingsTemp = new File(directory, postingsFile.getName() + ".tmp");
+        writePostings(postingsTemp, postings);
+
+        Files.move(docsTemp.toPath(), docsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(postingsTemp.toPath(), postingsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return Segment.open(commit, docsFile, postingsFile);
+    }
+
+    private void load() {
+        File head = new File(directory, "HEAD");
+        if (!head.exists()) {
+            return;
+        }
+        try {
+            String commit = new String(Files.readAllBytes(head.toPath()), StandardCharsets.UTF_8).trim();
+            current = Segment.open(commit,
+                new File(directory, "docs-" + commit + ".bin"),
+                new File(directory, "postings-" + commit + ".bin"));
+            logger.info("Loaded code search index for " + repository + " (" + current.paths.length + " files)");
+        } catch (IOException e) {
+            logger.warning("Discarding unreadable code search index for " + repository + ": " + e.getMessage());
+            head.delete();
+        }
+    }
+
+    private void deleteStaleFiles(String commit) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if ((name.startsWith("docs-") || name.startsWith("postings-")) && !name.contains(commit)) {
+                // May fail on Windows while an old segment is still mapped; retried next refresh
+                file.delete();
+            }
+        }
+    }
+
+    private static void addTrigrams(Map<Long, IntList> postings, int doc, String path, String text) {
+        String lower = text.toLowerCase(Locale.ROOT) + "\n" + path.toLowerCase(Locale.ROOT);
+        long[] keys = new long[Math.max(0, lower.length() - 2)];
+        int count = 0;
+        for (int i = 0; i + 3 <= lower.length(); i++) {
+            char a = lower.charAt(i);
+            char b = lower.charAt(i + 1);
+            char c = lower.charAt(i + 2);
+            // Queries are split on whitespace, so trigrams spanning it are never looked up
+            if (!Character.isWhitespace(a) && !Character.isWhitespace(b) && !Character.isWhitespace(c)) {
+                keys[count++] = trigram(a, b, c);
+            }
+        }
+
+        Arrays.sort(keys, 0, count);
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                postings.computeIfAbsent(keys[i], k -> new IntList()).add(doc);
+            }
+        }
+    }
+
+    private static long trigram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private static boolean isBinary(byte[] data) {
+        int limit = Math.min(data.length, 8000);
+        for (int i = 0; i < limit; i++) {
+            if (data[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static void writePostings(File file, Map<Long, IntList> postings) throws IOException {
+        long[] keys = new long[postings.size()];
+        int k = 0;
+        for (Long key : postings.keySet()) {
+            keys[k++] = key;
+        }
+        Arrays.sort(keys);
+
+        // Encode all lists first so the offset table can precede the data
+        java.io.ByteArrayOutputStream data = new java.io.ByteArrayOutputStream();
+        int[] offsets = new int[keys.length + 1];
+        for (int i = 0; i < keys.length; i++) {
+            offsets[i] = data.size();
+            IntList docs = postings.get(keys[i]);
+            int previous = 0;
+            for (int d = 0; d < docs.size; d++) {
+                writeVarint(data, docs.values[d] - previous);
+                previous = docs.values[d];
+            }
+        }
+        offsets[keys.length] = data.size();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(POSTINGS_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(keys.length);
+            for (long key : keys) {
+                out.writeLong(key);
+            }
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            data.writeTo(out);
+        }
+    }
+
+    private static void writeVarint(java.io.ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    public static class Result {
+        public final String commit;
+        public final int totalCount;
+        public final List<Hit> hits;
+
+        Result(String commit, int totalCount, List<Hit> hits) {
+            this.commit = commit;
+            this.totalCount = totalCount;
+            this.hits = hits;
+        }
+    }
+
+    public static class Hit {
+        public final String path;
+        public final int lineNumber;
+        public final String line;
+        final int score;
+
+        Hit(String path, int lineNumber, String line, int score) {
+            this.path = path;
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.score = score;
+        }
+    }
+
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Streams doc records to disk and hands out sequential doc ids.
+     */
+    private static class DocWriter implements AutoCloseable {
+        private final DataOutputStream out;
+        private int nextDoc;
+
+        DocWriter(File file, String commit) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+            out.writeInt(DOCS_MAGIC);
+            out.writeInt(VERSION);
+            writeBytes(commit.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int write(String path, byte[] sha, byte[] text) throws IOException {
+            writeBytes(path.getBytes(StandardCharsets.UTF_8));
+            out.write(sha, 0, 20);
+            out.writeByte(text != null ? FLAG_INDEXED : 0);
+            writeBytes(text != null ? text : new byte[0]);
+            return nextDoc++;
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * One immutable, memory-mapped index generation.
+     */
+    private static class Segment {
+        final String commit;
+        final String[] paths;
+        final String[] shas;
+        final boolean[] indexed;
+        final int[] textOffsets;
+        final int[] textLengths;
+        final ByteBuffer docs;
+        final LongBuffer keys;
+        final IntBuffer offsets;
+        final ByteBuffer postingData;
+
+        private Segment(String commit, String[] paths, String[] shas, boolean[] indexed, int[] textOffsets,
+                        int[] textLengths, ByteBuffer docs, LongBuffer keys, IntBuffer offsets, ByteBuffer postingData) {
+            this.commit = commit;
+            this.paths = paths;
+            this.shas = shas;
+            this.indexed = indexed;
+            this.textOffsets = textOffsets;
+            this.textLengths = textLengths;
+            this.docs = docs;
+            this.keys = keys;
+            this.offsets = offsets;
+            this.postingData = postingData;
+        }
+
+        static Segment open(String commit, File docsFile, File postingsFile) throws IOException {
+            MappedByteBuffer docs = map(docsFile);
+            if (docs.getInt(0) != DOCS_MAGIC || docs.getInt(4) != VERSION) {
+                throw new IOException("Bad docs file header");
+            }
+
+            List<String> paths = new ArrayList<>();
+            List<String> shas = new ArrayList<>();
+            List<Boolean> indexed = new ArrayList<>();
+            IntList textOffsets = new IntList();
+            IntList textLengths = new IntList();
+
+            int pos = 8;
+            pos += 4 + docs.getInt(pos); // commit
+            byte[] sha = new byte[20];
+            while (pos < docs.limit()) {
+                int pathLength = docs.getInt(pos);
+                byte[] path = new byte[pathLength];
+                docs.get(pos + 4, path);
+                pos += 4 + pathLength;
+                docs.get(pos, sha);
+                pos += 20;
+                boolean isIndexed = docs.get(pos) == FLAG_INDEXED;
+                pos += 1;
+                int textLength = docs.getInt(pos);
+                pos += 4;
+
+                paths.add(new String(path, StandardCharsets.UTF_8));
+                shas.add(ContentCache.toHex(sha));
+                indexed.add(isIndexed);
+                textOffsets.add(pos);
+                textLengths.add(textLength);
+                pos += textLength;
+            }
+
+            MappedByteBuffer postings = map(postingsFile);
+            if (postings.getInt(0) != POSTINGS_MAGIC || postings.getInt(4) != VERSION) {
+                throw new IOException("Bad postings file header");
+            }
+            int keyCount = postings.getInt(8);
+            int keysStart = 12;
+            int offsetsStart = keysStart + keyCount * 8;
+            int dataStart = offsetsStart + (keyCount + 1) * 4;
+
+            LongBuffer keys = postings.slice(keysStart, keyCount * 8).asLongBuffer();
+            IntBuffer offsets = postings.slice(offsetsStart, (keyCount + 1) * 4).asIntBuffer();
+            ByteBuffer data = postings.slice(dataStart, postings.limit() - dataStart);
+
+            boolean[] indexedArray = new boolean[indexed.size()];
+            for (int i = 0; i < indexedArray.length; i++) {
+                indexedArray[i] = indexed.get(i);
+            }
+            return new Segment(commit, paths.toArray(new String[0]), shas.toArray(new String[0]), indexedArray,
+                Arrays.copyOf(textOffsets.values, textOffsets.size), Arrays.copyOf(textLengths.values, textLengths.size),
+                docs, keys, offsets, data);
+        }
+
+        private static MappedByteBuffer map(File file) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+                // The mapping stays valid after the channel is closed
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        byte[] textBytes(int doc) {
+            byte[] bytes = new byte[textLengths[doc]];
+            docs.get(textOffsets[doc], bytes);
+            return bytes;
+        }
+
+        String text(int doc) {
+            return new String(textBytes(doc), StandardCharsets.UTF_8);
+        }
+
+        int[] postings(long key) {
+            int lo = 0;
+            int hi = keys.limit() - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                long value = keys.get(mid);
+                if (value < key) {
+                    lo = mid + 1;
+                } else if (value > key) {
+                    hi = mid - 1;
+                } else {
+                    return decode(offsets.get(mid), offsets.get(mid + 1));
+                }
+            }
+            return new int[0];
+        }
+
+        private int[] decode(int start, int end) {
+            IntList docs = new IntList();
+            int pos = start;
+            int previous = 0;
+            while (pos < end) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = postingData.get(pos++);
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                previous += value;
+                docs.add(previous);
+            }
+            return Arrays.copyOf(docs.values, docs.size);
+        }
+
+        Map<Long, IntList> decodePostings(int[] remap) {
+            Map<Long, IntList> result = new HashMap<>();
+            for (int i = 0; i < keys.limit(); i++) {
+                IntList mapped = null;
+                for (int doc : decode(offsets.get(i), offsets.get(i + 1))) {
+                    if (remap[doc] != -1) {
+                        if (mapped == null) {
+                            mapped = new IntList();
+                        }
+                        mapped.add(remap[doc]);
+                    }
+                }
+                if (mapped != null) {
+                    result.put(keys.get(i), mapped);
+                }
+            }
+            return result;
+        }
+    }
+}
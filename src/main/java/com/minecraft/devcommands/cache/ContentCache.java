@@ -0,0 +1,262 @@
+package com.minecraft.devcommands.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.logging.Logger;
+
+/**
+ * Content-addressed cache with a memory tier and a disk tier.
+ *
+ * Keys are hex digests (git blob SHAs, or {@link #key(String...)} for derived
+ * values such as AI explanations), so an entry never goes stale: a changed file
+ * simply gets a new key. Both tiers evict least-recently-used entries once
+ * their byte budget is exceeded.
+ */
+public class ContentCache {
+    private static final Pattern KEY_PATTERN = Pattern.compile("^[0-9a-f]{8,64}$");
+
+    private final File directory;
+    private final long memoryBudget;
+    private final long diskBudget;
+    private final Logger logger;
+
+    // Access-ordered maps give us LRU iteration order for free
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    public ContentCache(File directory, long memoryBudget, long diskBudget, Logger logger) {
+        this.directory = directory;
+        this.memoryBudget = memoryBudget;
+        this.diskBudget = diskBudget;
+        this.logger = logger;
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            logger.warning("Could not create cache directory: " + directory);
+        }
+        loadDiskIndex();
+    }
+
+    public byte[] get(String key) {
+        if (!KEY_PATTERN.matcher(key).matches()) {
+            return null;
+        }
+
+        synchronized (this) {
+            byte[] data = memory.get(key);
+            if (data != null) {
+                return data;
+            }
+            if (!disk.containsKey(key)) {
+                return null;
+            }
+        }
+
+        File file = fileFor(key);
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            file.setLastModified(System.currentTimeMillis());
+            synchronized (this) {
+                disk.get(key); // refresh LRU position
+                putMemory(key, data);
+            }
+            return data;
+        } catch (IOException e) {
+            synchronized (this) {
+                Long size = disk.remove(key);
+                if (size != null) {
+                    diskBytes -= size;
+                }
+            }
+            return null;
+        }
+    }
+
+    public String getString(String key) {
+        byte[] data = get(key);
+        return data != null ? new String(data, StandardCharsets.UTF_8) : null;
+    }
+
+    public void put(String key, byte[] data) {
+        if (!KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid cache key: " + key);
+        }
+
+        synchronized (this) {
+            putMemory(key, data);
+            if (disk.containsKey(key) || data.length > diskBudget) {
+                return;
+            }
+        }
+
+        File file = fileFor(key);
+        try {
+            File parent = file.getParentFile();
+            if (!parent.exists()) {
+                parent.mkdirs();
+            }
+            File temp = new File(parent, file.getName() + ".tmp");
+            Files.write(temp.toPath(), data);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("Failed to write cache entry " + key + ": " + e.getMessage());
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (disk.put(key, (long) data.length) == null) {
+                diskBytes += data.length;
+            }
+            Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+            while (diskBytes > diskBudget && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                diskBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+
+        for (String old : evicted) {
+            fileFor(old).delete();
+        }
+    }
+
+    public void putString(String key, String value) {
+        put(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Builds a stable cache key for a derived value from its inputs.
+     */
+    public static String key(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Computes the git blob SHA-1 of some content, i.e. the key GitHub's tree
+     * API reports for it.
+     */
+    public static byte[] gitBlobSha(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(("blob " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+            return digest.digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    public static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    private void putMemory(String key, byte[] data) {
+        if (data.length > memoryBudget) {
+            return;
+        }
+        byte[] previous = memory.put(key, data);
+        memoryBytes += data.length - (previous != null ? previous.length : 0);
+
+        Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+        while (memoryBytes > memoryBudget && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            memoryBytes -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+
+    private File fileFor(String key) {
+        // Two-character fan-out keeps directories small, like .git/objects
+        return new File(new File(directory, key.substring(0, 2)), key.substring(2));
+    }
+
+    private void loadDiskIndex() {
+        File[] buckets = directory.listFiles(File::isDirectory);
+        if (buckets == null) {
+            return;
+        }
+
+        List<File> files = new ArrayList<>();
+        for (File bucket : buckets) {
+            File[] entries = bucket.listFiles();
+            if (entries == null) {
+                continue;
+            }
+            for (File entry : entries) {
+                if (entry.getName().endsWith(".tmp")) {
+                    entry.delete();
+                } else if (entry.isFile()) {
+                    files.add(entry);
+                }
+            }
+        }
+
+        // Oldest first so the access-ordered map starts out in LRU order
+        files.sort(Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String key = file.getParentFile().getName() + file.getName();
+            if (KEY_PATTERN.matcher(key).matches()) {
+                disk.put(key, file.length());
+                diskBytes += file.length();
+            }
+        }
+
+        // The budget may have shrunk since the last run
+        Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+        while (diskBytes > diskBudget && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            diskBytes -= eldest.getValue();
+            fileFor(eldest.getKey()).delete();
+            it.remove();
+        }
+
+        logger.info(String.format("Content cache: %d entries (%d KB) on disk", disk.size(), diskBytes / 1024));
+    }
+}
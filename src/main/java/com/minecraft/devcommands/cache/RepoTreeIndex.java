@@ -0,0 +1,304 @@
+package com.minecraft.devcommands.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable index of every path in one commit, built from a single recursive
+ * Trees API response. Directories form a trie whose children are kept in sorted
+ * arrays, so listings and lookups never touch the network.
+ */
+public class RepoTreeIndex {
+    private final String commit;
+    private final boolean truncated;
+    private final Node root;
+    private final String[] filePaths;
+
+    private RepoTreeIndex(String commit, boolean truncated, Node root, String[] filePaths) {
+        this.commit = commit;
+        this.truncated = truncated;
+        this.root = root;
+        this.filePaths = filePaths;
+    }
+
+    /**
+     * Builds an index from a {@code GET /git/trees/{sha}?recursive=1} response.
+     */
+    public static RepoTreeIndex fromTree(String commit, JsonObject json) {
+        Builder root = new Builder("", null, 0);
+        List<String> files = new ArrayList<>();
+
+        JsonArray tree = json.getAsJsonArray("tree");
+        for (int i = 0; i < tree.size(); i++) {
+            JsonObject entry = tree.get(i).getAsJsonObject();
+            String type = entry.get("type").getAsString();
+            String path = entry.get("path").getAsString();
+            String sha = entry.get("sha").getAsString();
+
+            if ("tree".equals(type)) {
+                root.directory(path, sha);
+            } else if ("blob".equals(type)) {
+                int size = entry.has("size") ? entry.get("size").getAsInt() : 0;
+                root.file(path, sha, size);
+                files.add(path);
+            }
+            // Submodules ("commit" entries) have no content to serve
+        }
+
+        boolean truncated = json.has("truncated") && json.get("truncated").getAsBoolean();
+        String[] sorted = files.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return new RepoTreeIndex(commit, truncated, root.freeze(), sorted);
+    }
+
+    public String getCommit() {
+        return commit;
+    }
+
+    /**
+     * GitHub caps recursive trees at 100,000 entries; a truncated index can
+     * confirm that a path exists but not that it is missing.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public int getFileCount() {
+        return filePaths.length;
+    }
+
+    /**
+     * All file paths in the commit, sorted.
+     */
+    public List<String> getFilePaths() {
+        return Collections.unmodifiableList(Arrays.asList(filePaths));
+    }
+
+    public Node find(String path) {
+        if (path.isEmpty()) {
+            return root;
+        }
+
+        Node node = root;
+        int start = 0;
+        while (node != null && start <= path.length()) {
+            int slash = path.indexOf('/', start);
+            int end = slash == -1 ? path.length() : slash;
+            node = node.child(path.substring(start, end));
+            if (slash == -1) {
+                return node;
+            }
+            start = slash + 1;
+        }
+        return null;
+    }
+
+    public Node findFile(String path) {
+        Node node = find(path);
+        return node != null && !node.isDirectory() ? node : null;
+    }
+
+    /**
+     * Suggests file paths for a partial or misspelled path. Prefix matches come
+     * first, then paths whose name contains the query, then loose subsequence
+     * matches (so "ghclient" finds "api/GitHubClient.java").
+     */
+    public List<String> complete(String query, int limit) {
+        List<String> results = new ArrayList<>();
+        if (limit <= 0) {
+            return results;
+        }
+
+        // Exact prefix matches via binary search over the sorted paths
+        int from = Arrays.binarySearch(filePaths, query);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        for (int i = from; i < filePaths.length && results.size() < limit && filePaths[i].startsWith(query); i++) {
+            results.add(filePaths[i]);
+        }
+        if (results.size() >= limit || query.isEmpty()) {
+            return results;
+        }
+
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<Scored> scored = new ArrayList<>();
+        for (String path : filePaths) {
+            if (path.startsWith(query)) {
+                continue;
+            }
+            int score = score(path, needle);
+            if (score > 0) {
+                scored.add(new Scored(path, score));
+            }
+        }
+
+        scored.sort(Comparator.comparingInt((Scored s) -> -s.score).thenComparingInt(s -> s.path.length()));
+        for (int i = 0; i < scored.size() && results.size() < limit; i++) {
+            results.add(scored.get(i).path);
+        }
+        return results;
+    }
+
+    private static int score(String path, String needle) {
+        String haystack = path.toLowerCase(Locale.ROOT);
+        String name = haystack.substring(haystack.lastIndexOf('/') + 1);
+
+        if (name.startsWith(needle)) {
+            return 1000 - name.length();
+        }
+        if (name.contains(needle)) {
+            return 800 - name.length();
+        }
+        if (haystack.contains(needle)) {
+            return 600 - haystack.length() / 4;
+        }
+
+        // Subsequence match, penalizing gaps between matched characters
+        int gaps = 0;
+        int last = -1;
+        int pos = 0;
+        for (int i = 0; i < needle.length(); i++) {
+            char c = needle.charAt(i);
+            if (c == '/' || c == '.' || c == '_' || c == '-') {
+                continue;
+            }
+            int found = haystack.indexOf(c, pos);
+            if (found == -1) {
+                return 0;
+            }
+            if (last != -1) {
+                gaps += found - last - 1;
+            }
+            last = found;
+            pos = found + 1;
+        }
+        return Math.max(1, 400 - gaps);
+    }
+
+    private static class Scored {
+        final String path;
+        final int score;
+
+        Scored(String path, int score) {
+            this.path = path;
+            this.score = score;
+        }
+    }
+
+    public static class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        public final String name;
+        private final byte[] sha;
+        public final int size;
+        private final Node[] children;
+
+        Node(String name, byte[] sha, int size, Node[] children) {
+            this.name = name;
+            this.sha = sha;
+            this.size = size;
+            this.children = children;
+        }
+
+        public boolean isDirectory() {
+            return children != null;
+        }
+
+        public String getSha() {
+            return sha != null ? ContentCache.toHex(sha) : null;
+        }
+
+        public List<Node> getChildren() {
+            return children != null ? Collections.unmodifiableList(Arrays.asList(children)) : Collections.emptyList();
+        }
+
+        Node child(String name) {
+            if (children == null) {
+                return null;
+            }
+            int lo = 0;
+            int hi = children.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = children[mid].name.compareTo(name);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Mutable node used only while building; frozen into {@link Node} arrays.
+     */
+    private static class Builder {
+        final String name;
+        String sha;
+        int size;
+        Map<String, Builder> children;
+
+        Builder(String name, String sha, int size) {
+            this.name = name;
+            this.sha = sha;
+            this.size = size;
+        }
+
+        void directory(String path, String sha) {
+            walk(path).sha = sha;
+        }
+
+        void file(String path, String sha, int size) {
+            int slash = path.lastIndexOf('/');
+            Builder parent = slash == -1 ? this : walk(path.substring(0, slash));
+            if (parent.children == null) {
+                parent.children = new TreeMap<>();
+            }
+            parent.children.put(path.substring(slash + 1), new Builder(path.substring(slash + 1), sha, size));
+        }
+
+        private Builder walk(String path) {
+            Builder node = this;
+            for (String part : path.split("/")) {
+                if (node.children == null) {
+                    node.children = new TreeMap<>();
+                }
+                node = node.children.computeIfAbsent(part, n -> {
+                    Builder dir = new Builder(n, null, 0);
+                    dir.children = new TreeMap<>();
+                    return dir;
+                });
+            }
+            if (node.children == null) {
+                node.children = new TreeMap<>();
+            }
+            return node;
+        }
+
+        Node freeze() {
+            Node[] frozen = null;
+            if (children != null) {
+                frozen = children.isEmpty() ? Node.NO_CHILDREN : new Node[children.size()];
+                int i = 0;
+                for (Builder child : children.values()) {
+                    frozen[i++] = child.freeze();
+                }
+            }
+            return new Node(name, sha != null ? ContentCache.fromHex(sha) : null, size, frozen);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.minecraft.devcommands.cache;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exact-match cache of model responses, keyed by a hash of the canonical
+ * request body. Anything that changes the request - model, messages (and so
+ * any tool results folded into them), tools, temperature, max tokens - gives
+ * a different key. Entries expire after a TTL and the least recently used are
+ * evicted once the entry limit is reached.
+ */
+public class ResponseCache {
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final boolean bypassSampling;
+
+    // Access-ordered for LRU eviction
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long hits;
+    private long misses;
+
+    public ResponseCache(long ttlMillis, int maxEntries, boolean bypassSampling) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.bypassSampling = bypassSampling;
+    }
+
+    /**
+     * Whether a request with this temperature may be served from or stored in
+     * the cache.
+     */
+    public boolean accepts(double temperature) {
+        return !(bypassSampling && temperature > 0);
+    }
+
+    /**
+     * Cache key for a request body. Object keys are sorted and the
+     * {@code stream} flag is ignored, so equivalent requests share a key.
+     */
+    public static String key(String endpoint, JsonObject requestBody) {
+        StringBuilder canonical = new StringBuilder();
+        appendCanonical(requestBody, canonical, true);
+        return ContentCache.key(endpoint, canonical.toString());
+    }
+
+    /**
+     * Cache key for a request body that is already serialized in a fixed
+     * layout, so byte-identical bodies are the equivalent ones.
+     */
+    public static String key(String endpoint, String requestJson) {
+        return ContentCache.key(endpoint, requestJson);
+    }
+
+    public synchronized String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt < System.currentTimeMillis()) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(String key, String value) {
+        entries.put(key, new Entry(value, System.currentTimeMillis() + ttlMillis));
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private static void appendCanonical(JsonElement element, StringBuilder out, boolean top) {
+        if (element == null || element.isJsonNull()) {
+            out.append("null");
+        } else if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            List<String> names = new ArrayList<>(object.keySet());
+            Collections.sort(names);
+            out.append('{');
+            boolean first = true;
+            for (String name : names) {
+                if (top && name.equals("stream")) {
+                    continue;
+                }
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append('"').append(name).append("\":");
+                appendCanonical(object.get(name), out, false);
+            }
+            out.append('}');
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            out.append('[');
+            for (int i = 0; i < array.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                appendCanonical(array.get(i), out, false);
+            }
+            out.append(']');
+        } else {
+            // Primitives via toString so strings stay quoted and escaped
+            out.append(element.toString());
+        }
+    }
+
+    private static class Entry {
+        final String value;
+        final long expiresAt;
+
+        Entry(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.minecraft.devcommands.cache;
+
+import com.minecraft.devcommands.api.GitHubClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Local snapshot of a repository's file contents, stored as an append-only pack
+ * of blobs plus a fixed-width offset index:
+ *
+ * <pre>
+ * pack-&lt;gen&gt;.dat  "DCPK" version, then blob bytes back to back
+ * pack-&lt;gen&gt;.idx  "DCPI" version, then 32-byte records: blob SHA-1, offset, length
+ * HEAD            "&lt;gen&gt; &lt;commit&gt;" of the last completed sync
+ * </pre>
+ *
+ * Blobs are content-addressed, so a new commit only appends the blobs that
+ * changed. The pack is memory-mapped and reads are read-only slices of the
+ * mapping. When the pack outgrows its budget it is compacted into a new
+ * generation holding only the blobs of the current commit.
+ *
+ * Readers see an immutable {@link View}: an offset index together with a
+ * mapping that covers it. A sync builds the next view and publishes it in one
+ * step, so offsets are never applied to the wrong mapping.
+ */
+public class SnapshotStore {
+    private static final int PACK_MAGIC = 0x4443504B;  // "DCPK"
+    private static final int INDEX_MAGIC = 0x44435049; // "DCPI"
+    private static final int VERSION = 1;
+    private static final int HEADER = 8;
+    private static final int RECORD = 32;
+
+    // Beyond this many missing blobs one tarball beats per-blob fetches
+    private static final int INCREMENTAL_LIMIT = 200;
+
+    private final File directory;
+    private final String repository;
+    private final long maxFileBytes;
+    private final long maxPackBytes;
+    private final Logger logger;
+    private final ExecutorService executor;
+    private final AtomicBoolean syncing = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private volatile View view = new View(Collections.emptyMap(), null);
+    private volatile String commit;
+
+    // Written only while opening and by syncs, which run one at a time
+    private int generation;
+    private RandomAccessFile pack;
+    private RandomAccessFile index;
+
+    public SnapshotStore(File baseDirectory, String repository, long maxFileBytes, long maxPackBytes, Logger logger) {
+        this.directory = new File(baseDirectory, repository.replace('/', '_'));
+        this.repository = repository;
+        this.maxFileBytes = maxFileBytes;
+        this.maxPackBytes = maxPackBytes;
+        this.logger = logger;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "DevCommands-Snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            logger.warning("Could not create snapshot directory: " + directory);
+        }
+        try {
+            open();
+        } catch (IOException e) {
+            logger.warning("Could not open snapshot for " + repository + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the last completed sync was for {@code head}.
+     */
+    public boolean isCurrent(String head) {
+        return head.equals(commit);
+    }
+
+    /**
+     * Returns a read-only view of a blob inside the mapped pack, or null if the
+     * blob is not in the snapshot. No bytes are copied.
+     */
+    public ByteBuffer read(String sha) {
+        return view.read(sha);
+    }
+
+    public String readString(String sha) {
+        ByteBuffer data = read(sha);
+        return data != null ? StandardCharsets.UTF_8.decode(data).toString() : null;
+    }
+
+    public int getBlobCount() {
+        return view.entries.size();
+    }
+
+    /**
+     * Brings the snapshot up to the default branch head on the background
+     * thread. Concurrent requests collapse into one sync.
+     */
+    public void requestSync(GitHubClient github) {
+        if (closed || !syncing.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                sync(github);
+            } catch (Exception e) {
+                logger.warning("Snapshot sync failed for " + repository + ": " + e.getMessage());
+            } finally {
+                syncing.set(false);
+                if (closed) {
+                    closeFiles();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns at once, even during a sync; the sync stops at its next write
+     * and closes the files on its own thread.
+     */
+    public void shutdown() {
+        closed = true;
+        boolean neverStarted = !executor.shutdownNow().isEmpty();
+        if (neverStarted || !syncing.get()) {
+            closeFiles();
+        }
+    }
+
+    // Runs on the snapshot thread only, so the files need no lock
+    private void sync(GitHubClient github) throws IOException {
+        RepoTreeIndex tree = github.getTreeIndex();
+        if (tree.getCommit().equals(commit)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        // Readers keep using the current view until this sync publishes the next
+        Map<String, long[]> entries = new HashMap<>(view.entries);
+        Set<String> live = new HashSet<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (String path : tree.getFilePaths()) {
+            RepoTreeIndex.Node node = tree.findFile(path);
+            if (node.size > maxFileBytes) {
+                continue;
+            }
+            String sha = node.getSha();
+            live.add(sha);
+            if (!entries.containsKey(sha)) {
+                missing.add(sha);
+            }
+        }
+
+        int appended = 0;
+        if (tree.isTruncated() || missing.size() > INCREMENTAL_LIMIT) {
+            int[] count = new int[1];
+            github.downloadTarball(tree.getCommit(), maxFileBytes, (path, data, size, linkTarget) -> {
+                if (data != null) {
+                    String sha = ContentCache.toHex(ContentCache.gitBlobSha(data));
+                    if (!entries.containsKey(sha)) {
+                        append(entries, sha, data);
+                        count[0]++;
+                    }
+                }
+            });
+            appended = count[0];
+        } else {
+            for (String sha : missing) {
+                append(entries, sha, github.fetchBlobBytes(sha));
+                appended++;
+            }
+        }
+
+        pack.getChannel().force(false);
+        index.getChannel().force(false);
+
+        view = pack.length() > maxPackBytes
+            ? compact(live, new View(entries, map(pack)))
+            : new View(entries, map(pack));
+
+        commit = tree.getCommit();
+        writeHead();
+
+        logger.info(String.format("Snapshot of %s @ %s: %d blobs (%d new, %d KB, %d ms)", repository,
+            commit.substring(0, Math.min(7, commit.length())), view.entries.size(), appended, pack.length() / 1024,
+            System.currentTimeMillis() - start));
+    }
+
+    private void append(Map<String, long[]> entries, String sha, byte[] data) throws IOException {
+        if (closed) {
+            throw new IOException("Snapshot store closed");
+        }
+        long offset = pack.length();
+        pack.seek(offset);
+        pack.write(data);
+
+        // The index record is written after the data, so a crash never leaves a dangling record
+        ByteBuffer record = ByteBuffer.allocate(RECORD);
+        record.put(ContentCache.fromHex(sha));
+        record.putLong(offset);
+        record.putInt(data.length);
+        index.seek(index.length());
+        index.write(record.array());
+
+        entries.put(sha, new long[]{offset, data.length});
+    }
+
+    /**
+     * Copies the live blobs of {@code source} into a new generation and
+     * returns the view of it.
+     */
+    private View compact(Set<String> live, View source) throws IOException {
+        int next = generation + 1;
+        File packFile = packFile(next);
+        File indexFile = indexFile(next);
+
+        Map<String, long[]> kept = new HashMap<>();
+        try (RandomAccessFile newPack = new RandomAccessFile(packFile, "rw");
+             RandomAccessFile newIndex = new RandomAccessFile(indexFile, "rw")) {
+            newPack.setLength(0);
+            newIndex.setLength(0);
+            writeHeader(newPack, PACK_MAGIC);
+            writeHeader(newIndex, INDEX_MAGIC);
+
+            for (String sha : live) {
+                ByteBuffer data = source.read(sha);
+                if (data == null) {
+                    continue;
+                }
+                long offset = newPack.length();
+                newPack.seek(offset);
+                newPack.getChannel().write(data, offset);
+
+                ByteBuffer record = ByteBuffer.allocate(RECORD);
+                record.put(ContentCache.fromHex(sha));
+                record.putLong(offset);
+                record.putInt((int) (newPack.length() - offset));
+                newIndex.seek(newIndex.length());
+                newIndex.write(record.array());
+                kept.put(sha, new long[]{offset, newPack.length() - offset});
+            }
+            newPack.getChannel().force(false);
+            newIndex.getChannel().force(false);
+
+            closeFiles();
+            int old = generation;
+            generation = next;
+            writeHead();
+
+            // May fail on Windows while the old pack is still mapped; cleaned up on next start
+            packFile(old).delete();
+            indexFile(old).delete();
+        }
+
+        if (closed) {
+            throw new IOException("Snapshot store closed");
+        }
+        pack = new RandomAccessFile(packFile, "rw");
+        index = new RandomAccessFile(indexFile, "rw");
+        return new View(kept, map(pack));
+    }
+
+    private static MappedByteBuffer map(RandomAccessFile file) throws IOException {
+        FileChannel channel = file.getChannel();
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    private void open() throws IOException {
+        File head = new File(directory, "HEAD");
+        String syncedCommit = null;
+        if (head.exists()) {
+            String[] parts = new String(Files.readAllBytes(head.toPath()), StandardCharsets.UTF_8).trim().split(" ");
+            generation = Integer.parseInt(parts[0]);
+            syncedCommit = parts.length > 1 ? parts[1] : null;
+        }
+
+        deleteOtherGenerations();
+
+        pack = new RandomAccessFile(packFile(generation), "rw");
+        index = new RandomAccessFile(indexFile(generation), "rw");
+        if (pack.length() < HEADER || index.length() < HEADER) {
+            pack.setLength(0);
+            index.setLength(0);
+            writeHeader(pack, PACK_MAGIC);
+            writeHeader(index, INDEX_MAGIC);
+            syncedCommit = null;
+        } else if (readHeader(pack) != PACK_MAGIC || readHeader(index) != INDEX_MAGIC) {
+            throw new IOException("Bad snapshot file header");
+        }
+
+        // Drop a torn trailing record and any record pointing past the end of the pack
+        long records = (index.length() - HEADER) / RECORD;
+        index.setLength(HEADER + records * RECORD);
+        long packLength = pack.length();
+        Map<String, long[]> entries = new HashMap<>();
+        byte[] raw = new byte[(int) (records * RECORD)];
+        index.seek(HEADER);
+        index.readFully(raw);
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        byte[] sha = new byte[20];
+        for (long i = 0; i < records; i++) {
+            buffer.get(sha);
+            long offset = buffer.getLong();
+            int length = buffer.getInt();
+            if (offset + length <= packLength) {
+                entries.put(ContentCache.toHex(sha), new long[]{offset, length});
+            } else {
+                syncedCommit = null;
+            }
+        }
+
+        commit = syncedCommit;
+        view = new View(entries, map(pack));
+        if (!entries.isEmpty()) {
+            logger.info(String.format("Loaded snapshot of %s: %d blobs (%d KB)", repository, entries.size(), packLength / 1024));
+        }
+    }
+
+    private void writeHead() throws IOException {
+        String value = generation + (commit != null ? " " + commit : "");
+        Files.write(new File(directory, "HEAD").toPath(), value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void deleteOtherGenerations() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        String current = "pack-" + generation + ".";
+        for (File file : files) {
+            if (file.getName().startsWith("pack-") && !file.getName().startsWith(current)) {
+                file.delete();
+            }
+        }
+    }
+
+    private void closeFiles() {
+        try {
+            if (pack != null) {
+                pack.close();
+            }
+            if (index != null) {
+                index.close();
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to close snapshot files: " + e.getMessage());
+        }
+    }
+
+    private File packFile(int gen) {
+        return new File(directory, "pack-" + gen + ".dat");
+    }
+
+    private File indexFile(int gen) {
+        return new File(directory, "pack-" + gen + ".idx");
+    }
+
+    private static void writeHeader(RandomAccessFile file, int magic) throws IOException {
+        file.seek(0);
+        file.writeInt(magic);
+        file.writeInt(VERSION);
+    }
+
+    private static int readHeader(RandomAccessFile file) throws IOException {
+        file.seek(0);
+        int magic = file.readInt();
+        return file.readInt() == VERSION ? magic : -1;
+    }
+
+    /**
+     * An offset index and a mapping of the pack it points into. The mapping
+     * stays valid after its file is closed or replaced.
+     */
+    private static final class View {
+        final Map<String, long[]> entries;
+        final MappedByteBuffer mapped;
+
+        View(Map<String, long[]> entries, MappedByteBuffer mapped) {
+            this.entries = Collections.unmodifiableMap(entries);
+            this.mapped = mapped;
+        }
+
+        ByteBuffer read(String sha) {
+            long[] entry = entries.get(sha);
+            if (entry == null || mapped == null || entry[0] + entry[1] > mapped.limit()) {
+                return null;
+            }
+            return mapped.slice((int) entry[0], (int) entry[1]).asReadOnlyBuffer();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.minecraft.devcommands.cache;
+
+import com.minecraft.devcommands.utils.CancellationToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Last good answer to each query, served when its backend fails. A query that
+ * fails with an I/O error (including an open circuit) and has an earlier
+ * answer gets that answer marked stale instead of an error. From then on it is
+ * answered from the store straight away, and a single background fetch per
+ * query retries the backend at most once every revalidation interval until it
+ * succeeds.
+ */
+public class StaleCache {
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+
+    /**
+     * Fetches a fresh answer from the backend.
+     */
+    @FunctionalInterface
+    public interface Fetcher<T> {
+        T fetch() throws Exception;
+    }
+
+    private final int maxEntries;
+    private final long revalidateMillis;
+    private final long maxAgeMillis;
+    private final Logger logger;
+    private final ExecutorService revalidator;
+
+    // Access-ordered for LRU eviction
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * @param maxEntries answers to keep; 0 turns degraded mode off
+     * @param maxAgeMillis answers older than this are never served
+     */
+    public StaleCache(int maxEntries, long revalidateMillis, long maxAgeMillis, Logger logger) {
+        this.maxEntries = maxEntries;
+        this.revalidateMillis = revalidateMillis;
+        this.maxAgeMillis = maxAgeMillis;
+        this.logger = logger;
+        this.revalidator = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "DevCommands-Revalidate");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Answers {@code key} of the given query type from the backend, or with
+     * the last good answer if the backend is failing. Errors other than I/O,
+     * and failures of queries never answered before, are thrown as they are.
+     */
+    public <T> Result<T> get(String query, String key, Fetcher<T> fetcher) throws Exception {
+        String id = query + "|" + key;
+        Entry entry = servable(id);
+        if (entry != null && entry.failing) {
+            revalidate(query, entry, fetcher);
+            return stale(entry);
+        }
+
+        try {
+            T value = fetcher.fetch();
+            store(id, value);
+            return new Result<>(value, System.currentTimeMillis(), false);
+        } catch (Exception e) {
+            if (entry == null || !isBackendFailure(e) || CancellationToken.isCurrentCancelled()) {
+                throw e;
+            }
+            synchronized (this) {
+                entry.failing = true;
+                entry.attemptedAt = System.currentTimeMillis();
+            }
+            logger.warning("Serving " + query + " as of " + formatTime(entry.fetchedAt) + ": " + e.getMessage());
+            return stale(entry);
+        }
+    }
+
+    public void shutdown() {
+        revalidator.shutdownNow();
+    }
+
+    /**
+     * Local wall-clock time as HH:MM.
+     */
+    public static String formatTime(long millis) {
+        return TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()));
+    }
+
+    private synchronized Entry servable(String id) {
+        Entry entry = entries.get(id);
+        if (entry != null && System.currentTimeMillis() - entry.fetchedAt > maxAgeMillis) {
+            entries.remove(id);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void store(String id, Object value) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Entry entry = entries.computeIfAbsent(id, k -> new Entry());
+        entry.value = value;
+        entry.fetchedAt = System.currentTimeMillis();
+        entry.failing = false;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private <T> void revalidate(String query, Entry entry, Fetcher<T> fetcher) {
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (entry.revalidating || now - entry.attemptedAt < revalidateMillis) {
+                return;
+            }
+            entry.revalidating = true;
+            entry.attemptedAt = now;
+        }
+        revalidator.execute(() -> {
+            try {
+                T value = fetcher.fetch();
+                synchronized (this) {
+                    entry.value = value;
+                    entry.fetchedAt = System.currentTimeMillis();
+                    entry.failing = false;
+                }
+                logger.info("Backend for " + query + " answered again");
+            } catch (Exception e) {
+                logger.fine("Revalidating " + query + " failed: " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    entry.revalidating = false;
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> Result<T> stale(Entry entry) {
+        return new Result<>((T) entry.value, entry.fetchedAt, true);
+    }
+
+    private static boolean isBackendFailure(Exception e) {
+        return e instanceof IOException || e instanceof UncheckedIOException;
+    }
+
+    /**
+     * An answer and whether it came from the store because the backend failed.
+     */
+    public static class Result<T> {
+        public final T value;
+        public final long fetchedAt;
+        public final boolean stale;
+
+        Result(T value, long fetchedAt, boolean stale) {
+            this.value = value;
+            this.fetchedAt = fetchedAt;
+            this.stale = stale;
+        }
+
+        public String staleMarker() {
+            return "stale as of " + formatTime(fetchedAt);
+        }
+    }
+
+    // Fields are guarded by the cache's lock
+    private static class Entry {
+        Object value;
+        long fetchedAt;
+        long attemptedAt;
+        boolean failing;
+        boolean revalidating;
+    }
+}
@@ -0,0 +1,189 @@
+package com.minecraft.devcommands.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Minimal streaming reader for the gzipped ustar/pax archives served by
+ * GitHub's tarball endpoint. Only regular files and symlinks are reported;
+ * everything else is skipped.
+ */
+public class TarReader {
+    private static final int BLOCK = 512;
+
+    public interface EntryHandler {
+        /**
+         * Called for every file in the archive. {@code path} has the leading
+         * {@code owner-repo-sha/} directory stripped. {@code data} is null for
+         * files larger than the reader's limit; {@code linkTarget} is set for symlinks.
+         */
+        void onEntry(String path, byte[] data, long size, String linkTarget) throws IOException;
+    }
+
+    private TarReader() {
+    }
+
+    public static void readGzip(InputStream in, long maxFileBytes, EntryHandler handler) throws IOException {
+        read(new GZIPInputStream(in, 64 * 1024), maxFileBytes, handler);
+    }
+
+    public static void read(InputStream in, long maxFileBytes, EntryHandler handler) throws IOException {
+        byte[] header = new byte[BLOCK];
+        String longName = null;
+
+        while (true) {
+            if (!readFully(in, header)) {
+                return;
+            }
+            if (isZeroBlock(header)) {
+                return;
+            }
+
+            String name = field(header, 0, 100);
+            long size = octal(header, 124, 12);
+            char type = (char) header[156];
+            String linkName = field(header, 157, 100);
+            String prefix = "ustar".equals(field(header, 257, 5)) ? field(header, 345, 155) : "";
+            if (!prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+
+            if (type == 'x' || type == 'L') {
+                // pax extended header or GNU long name applies to the next entry
+                byte[] data = readData(in, size);
+                longName = type == 'x' ? paxPath(data) : new String(data, StandardCharsets.UTF_8).trim();
+                continue;
+            }
+            if (longName != null) {
+                name = longName;
+                longName = null;
+            }
+
+            String path = stripRoot(name);
+            if ((type == '0' || type == '\0') && !path.isEmpty()) {
+                if (size <= maxFileBytes) {
+                    handler.onEntry(path, readData(in, size), size, null);
+                } else {
+                    skipData(in, size);
+                    handler.onEntry(path, null, size, null);
+                }
+            } else if (type == '2' && !path.isEmpty()) {
+                skipData(in, size);
+                handler.onEntry(path, null, 0, linkName);
+            } else {
+                skipData(in, size);
+            }
+        }
+    }
+
+    private static String stripRoot(String name) {
+        int slash = name.indexOf('/');
+        return slash == -1 ? "" : name.substring(slash + 1);
+    }
+
+    private static String paxPath(byte[] data) {
+        // Records look like "<len> key=value\n"
+        String records = new String(data, StandardCharsets.UTF_8);
+        for (String record : records.split("\n")) {
+            int space = record.indexOf(' ');
+            if (space != -1 && record.startsWith("path=", space + 1)) {
+                return record.substring(space + 6);
+            }
+        }
+        return null;
+    }
+
+    private static byte[] readData(InputStream in, long size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(size, Integer.MAX_VALUE));
+        byte[] buffer = new byte[8192];
+        long remaining = size;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                throw new EOFException("Unexpected end of tar archive");
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+        skipPadding(in, size);
+        return out.toByteArray();
+    }
+
+    private static void skipData(InputStream in, long size) throws IOException {
+        long remaining = size + padding(size);
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException("Unexpected end of tar archive");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void skipPadding(InputStream in, long size) throws IOException {
+        long pad = padding(size);
+        while (pad > 0) {
+            if (in.read() == -1) {
+                throw new EOFException("Unexpected end of tar archive");
+            }
+            pad--;
+        }
+    }
+
+    private static long padding(long size) {
+        long rem = size % BLOCK;
+        return rem == 0 ? 0 : BLOCK - rem;
+    }
+
+    private static boolean readFully(InputStream in, byte[] block) throws IOException {
+        int offset = 0;
+        while (offset < block.length) {
+            int read = in.read(block, offset, block.length - offset);
+            if (read == -1) {
+                if (offset == 0) {
+                    return false;
+                }
+                throw new EOFException("Truncated tar header");
+            }
+            offset += read;
+        }
+        return true;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String field(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long octal(byte[] header, int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b >= '0' && b <= '7') {
+                value = value * 8 + (b - '0');
+            } else if (b != ' ' && b != 0) {
+                break;
+            }
+        }
+        return value;
+    }
+}
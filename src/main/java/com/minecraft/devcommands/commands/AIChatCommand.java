@@ -3,11 +3,14 @@ package com.minecraft.devcommands.commands;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.minecraft.devcommands.DevCommandsPlugin;
-import com.minecraft.devcommands.api.ToolDefinitions;
+import com.minecraft.devcommands.api.ToolSelector;
 import com.minecraft.devcommands.api.VLLMClient;
 import com.minecraft.devcommands.utils.BookGenerator;
+import com.minecraft.devcommands.utils.CancellationToken;
 import com.minecraft.devcommands.utils.ChatHistory;
+import com.minecraft.devcommands.utils.IntentRouter;
 import com.minecraft.devcommands.utils.ToolExecutor;
+import com.minecraft.devcommands.utils.ToolResultCompactor;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextDecoration;
@@ -18,6 +21,7 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -42,6 +46,22 @@ public class AIChatCommand implements CommandExecutor, TabCompleter {
                     completions.add(sub);
                 }
             }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("history")) {
+            String input = args[1].toLowerCase();
+            if ("search".startsWith(input)) {
+                completions.add("search");
+            }
+            for (Player online : plugin.getServer().getOnlinePlayers()) {
+                if (online.getName().toLowerCase().startsWith(input)) {
+                    completions.add(online.getName());
+                }
+            }
+        } else if (args.length > 2 && args[0].equalsIgnoreCase("history") && args[1].equalsIgnoreCase("search")) {
+            // Suggest words that actually occur in past chats
+            String input = args[args.length - 1];
+            if (!input.isEmpty()) {
+                completions.addAll(plugin.getChatHistory().completeSearchTerm(input, 20));
+            }
         }
 
         return completions;
@@ -80,7 +100,15 @@ public class AIChatCommand implements CommandExecutor, TabCompleter {
         }
 
         if (firstArg.equals("history")) {
-            showHistory(player);
+            if (args.length > 1 && args[1].equalsIgnoreCase("search")) {
+                if (args.length < 3) {
+                    player.sendMessage(Component.text("Usage: /ai-chat history search <terms>", NamedTextColor.RED));
+                    return true;
+                }
+                searchHistory(player, String.join(" ", Arrays.copyOfRange(args, 2, args.length)));
+                return true;
+            }
+            showHistory(player, args.length > 1 ? args[1] : null);
             return true;
         }
 
@@ -98,83 +126,17 @@ public class AIChatCommand implements CommandExecutor, TabCompleter {
         player.sendMessage(Component.text("Asking AI...", NamedTextColor.YELLOW));
 
         // Run async
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRequestTracker().runAsync(player, "ai-chat", () -> {
             try {
                 VLLMClient vllm = plugin.getVLLMClient();
                 ToolExecutor toolExecutor = new ToolExecutor(plugin);
 
-                // Get available tools
-                JsonArray tools = ToolDefinitions.getMinecraftTools();
-
-                // Call AI with tools
-                VLLMClient.ChatResponse response = vllm.chatWithTools(message, tools);
-
-                // Debug logging
-                plugin.getLogger().info("AI Response - Has tool calls: " + response.hasToolCalls());
-                if (response.toolCalls != null) {
-                    plugin.getLogger().info("Tool calls: " + response.toolCalls.toString());
-                }
-
-                String finalResponse;
-
-                // Check if AI wants to use tools
-                if (response.hasToolCalls()) {
-                    plugin.getServer().getScheduler().runTask(plugin, () -> {
-                        player.sendMessage(Component.text("🔧 AI is using tools...", NamedTextColor.GOLD));
-                    });
-
-                    // Execute each tool call
-                    JsonArray toolCalls = response.toolCalls;
-                    StringBuilder toolResults = new StringBuilder();
-
-                    for (int i = 0; i < toolCalls.size(); i++) {
-                        JsonObject toolCall = toolCalls.get(i).getAsJsonObject();
-                        JsonObject function = toolCall.getAsJsonObject("function");
-                        String toolName = function.get("name").getAsString();
-
-                        // Parse arguments - handle both string and object formats
-                        JsonObject arguments;
-                        com.google.gson.JsonElement argsElement = function.get("arguments");
-                        if (argsElement.isJsonPrimitive()) {
-                            // Arguments is a JSON string, parse it
-                            arguments = new com.google.gson.Gson().fromJson(argsElement.getAsString(), JsonObject.class);
-                        } else {
-                            // Arguments is already a JsonObject
-                            arguments = argsElement.getAsJsonObject();
-                        }
-
-                        // Show which tool is being used
-                        final String displayName = toolName.replace("_", " ");
-                        plugin.getServer().getScheduler().runTask(plugin, () -> {
-                            player.sendMessage(Component.text("  → ", NamedTextColor.DARK_GRAY)
-                                .append(Component.text(displayName, NamedTextColor.YELLOW)));
-                        });
-
-                        try {
-                            String result = toolExecutor.executeTool(toolName, arguments, player);
-                            toolResults.append(String.format("Tool '%s' result:\n%s\n\n", toolName, result));
-                        } catch (Exception e) {
-                            toolResults.append(String.format("Tool '%s' error: %s\n\n", toolName, e.getMessage()));
-                            plugin.getLogger().warning("Tool execution error: " + e.getMessage());
-                        }
-                    }
-
-                    // Send tool results back to AI for final response
-                    plugin.getServer().getScheduler().runTask(plugin, () -> {
-                        player.sendMessage(Component.text("✨ Generating final response...", NamedTextColor.AQUA));
-                    });
-
-                    String followUpPrompt = String.format(
-                        "Based on the tool results below, please provide a helpful response to the user.\n\n" +
-                        "Original question: %s\n\n" +
-                        "Tool results:\n%s",
-                        message, toolResults.toString()
-                    );
-
-                    finalResponse = vllm.chat(followUpPrompt);
-                } else {
-                    // No tools needed, use direct response
-                    finalResponse = response.content;
+                // Obvious requests go straight to the tool; everything else asks the model
+                IntentRouter router = plugin.getIntentRouter();
+                IntentRouter.Route route = router != null ? router.route(message) : null;
+                String finalResponse = route != null ? runRoute(route, message, vllm, toolExecutor, player) : null;
+                if (finalResponse == null) {
+                    finalResponse = askModel(message, vllm, toolExecutor, player);
                 }
 
                 // Add to history
@@ -183,7 +145,7 @@ public class AIChatCommand implements CommandExecutor, TabCompleter {
                 // Send final response
                 String finalResponseCopy = finalResponse;
                 if (finalResponse.length() < 200 && !finalResponse.contains("\n")) {
-                    plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    plugin.getRequestTracker().deliver(() -> {
                         player.sendMessage(Component.text("AI: ", NamedTextColor.AQUA)
                             .append(Component.text(finalResponseCopy, NamedTextColor.WHITE)));
                     });
@@ -206,17 +168,20 @@ public class AIChatCommand implements CommandExecutor, TabCompleter {
                         maxPages
                     );
 
-                    plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    plugin.getRequestTracker().deliver(() -> {
                         player.getInventory().addItem(book);
                         player.sendMessage(Component.text("AI response received! Check your inventory.", NamedTextColor.GREEN));
                     });
                 }
 
             } catch (Exception e) {
+                if (CancellationToken.isCurrentCancelled()) {
+                    return;
+                }
                 plugin.getLogger().severe("Error with AI chat: " + e.getMessage());
                 e.printStackTrace();
 
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.sendMessage(Component.text("Error: " + e.getMessage(), NamedTextColor.RED));
                 });
             }
@@ -299,25 +264,205 @@ public class AIChatCommand implements CommandExecutor, TabCompleter {
         player.sendMessage(Component.text("  \"Show me open PRs and bugs\"", NamedTextColor.DARK_GRAY));
     }
 
-    private void showHistory(Player player) {
+    /**
+     * Lets the model pick tools, runs them and asks it for the final answer.
+     */
+    private String askModel(String message, VLLMClient vllm, ToolExecutor toolExecutor, Player player) throws IOException {
+        // Offer only the tools that look relevant to this message
+        ToolSelector selector = plugin.getToolSelector();
+        ToolSelector.ToolSet selected = selector != null ? selector.select(message) : ToolSelector.ALL;
+        if (selected.isEmpty()) {
+            // Nothing to decide, so skip the tool round and answer directly
+            return vllm.chat(message, selected, VLLMClient.Phase.ANSWER);
+        }
+        VLLMClient.ChatResponse response = vllm.chatWithTools(message, selected);
+
+        // The model wanted a tool we left out: ask again with the full set
+        if (response.hasToolCalls() && !offersAll(selected, response.toolCalls)) {
+            plugin.getLogger().info("AI asked for a tool outside " + selected.getNames() + ", retrying with all tools");
+            selected = ToolSelector.ALL;
+            response = vllm.chatWithTools(message, selected);
+        }
+
+        // Debug logging
+        plugin.getLogger().info("AI Response - Has tool calls: " + response.hasToolCalls());
+        if (response.toolCalls != null) {
+            plugin.getLogger().info("Tool calls: " + response.toolCalls.toString());
+        }
+
+        String finalResponse;
+
+        // Check if AI wants to use tools
+        if (response.hasToolCalls()) {
+            plugin.getRequestTracker().deliver(() -> {
+                player.sendMessage(Component.text("🔧 AI is using tools...", NamedTextColor.GOLD));
+            });
+
+            // Execute each tool call
+            JsonArray toolCalls = response.toolCalls;
+            StringBuilder toolResults = new StringBuilder();
+
+            for (int i = 0; i < toolCalls.size(); i++) {
+                CancellationToken.throwIfCurrentCancelled();
+                JsonObject toolCall = toolCalls.get(i).getAsJsonObject();
+                JsonObject function = toolCall.getAsJsonObject("function");
+                String toolName = function.get("name").getAsString();
+
+                // Parse arguments - handle both string and object formats
+                JsonObject arguments;
+                com.google.gson.JsonElement argsElement = function.get("arguments");
+                if (argsElement.isJsonPrimitive()) {
+                    // Arguments is a JSON string, parse it
+                    arguments = new com.google.gson.Gson().fromJson(argsElement.getAsString(), JsonObject.class);
+                } else {
+                    // Arguments is already a JsonObject
+                    arguments = argsElement.getAsJsonObject();
+                }
+
+                // Show which tool is being used
+                final String displayName = toolName.replace("_", " ");
+                plugin.getRequestTracker().deliver(() -> {
+                    player.sendMessage(Component.text("  → ", NamedTextColor.DARK_GRAY)
+                        .append(Component.text(displayName, NamedTextColor.YELLOW)));
+                });
+
+                try {
+                    ToolExecutor.ToolResult result = toolExecutor.runTool(toolName, arguments, player);
+                    toolResults.append(String.format("Tool '%s' result:\n%s\n\n", toolName,
+                        forModel(toolName, result, message, vllm)));
+                } catch (Exception e) {
+                    toolResults.append(String.format("Tool '%s' error: %s\n\n", toolName, e.getMessage()));
+                    plugin.getLogger().warning("Tool execution error: " + e.getMessage());
+                }
+            }
+
+            // Send tool results back to AI for final response
+            plugin.getRequestTracker().deliver(() -> {
+                player.sendMessage(Component.text("✨ Generating final response...", NamedTextColor.AQUA));
+            });
+
+            String followUpPrompt = String.format(
+                "Based on the tool results below, please provide a helpful response to the user.\n\n" +
+                "Original question: %s\n\n" +
+                "Tool results:\n%s",
+                message, toolResults.toString()
+            );
+
+            finalResponse = vllm.chat(followUpPrompt, selected, VLLMClient.Phase.SUMMARY);
+        } else if (vllm.sameProfile(VLLMClient.Phase.TOOLS, VLLMClient.Phase.ANSWER)) {
+            // No tools needed, use direct response
+            finalResponse = response.content;
+        } else {
+            // The tool-selection model decided no tools; let the answer model reply
+            finalResponse = vllm.chat(message, selected, VLLMClient.Phase.ANSWER);
+        }
+
+        return finalResponse;
+    }
+
+    /**
+     * Runs a tool the router matched. Returns null when the tool fails, so the
+     * model gets a chance instead.
+     */
+    private String runRoute(IntentRouter.Route route, String message, VLLMClient vllm, ToolExecutor toolExecutor,
+                            Player player) throws IOException {
+        String displayName = route.tool.replace("_", " ");
+        plugin.getRequestTracker().deliver(() -> {
+            player.sendMessage(Component.text("  → ", NamedTextColor.DARK_GRAY)
+                .append(Component.text(displayName, NamedTextColor.YELLOW)));
+        });
+
+        ToolExecutor.ToolResult result;
+        try {
+            result = toolExecutor.runTool(route.tool, route.arguments, player);
+        } catch (Exception e) {
+            plugin.getLogger().warning("Routed tool " + route.tool + " failed, asking the model: " + e.getMessage());
+            return null;
+        }
+
+        if (route.answersDirectly() && plugin.getConfig().getBoolean("vllm.intent-router.skip-summary", true)) {
+            return result.text;
+        }
+
+        plugin.getRequestTracker().deliver(() -> {
+            player.sendMessage(Component.text("✨ Generating final response...", NamedTextColor.AQUA));
+        });
+        String followUpPrompt = String.format(
+            "Based on the tool results below, please provide a helpful response to the user.\n\n" +
+            "Original question: %s\n\n" +
+            "Tool results:\nTool '%s' result:\n%s\n\n",
+            message, route.tool, forModel(route.tool, result, message, vllm)
+        );
+        return vllm.chat(followUpPrompt, ToolSelector.NONE, VLLMClient.Phase.SUMMARY);
+    }
+
+    /**
+     * A tool result as it goes into the follow-up prompt: compacted and held
+     * to its token budget, or the formatted text when compaction is off.
+     */
+    private String forModel(String tool, ToolExecutor.ToolResult result, String message, VLLMClient vllm) {
+        ToolResultCompactor compactor = plugin.getToolResultCompactor();
+        return compactor != null ? compactor.compact(tool, result, message, vllm) : result.text;
+    }
+
+    private static boolean offersAll(ToolSelector.ToolSet tools, JsonArray toolCalls) {
+        for (int i = 0; i < toolCalls.size(); i++) {
+            JsonObject function = toolCalls.get(i).getAsJsonObject().getAsJsonObject("function");
+            if (function == null || !function.has("name") || !tools.contains(function.get("name").getAsString())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void showHistory(Player player, String playerFilter) {
         ChatHistory history = plugin.getChatHistory();
-        int historySize = history.size();
 
-        if (historySize == 0) {
-            player.sendMessage(Component.text("No chat history yet!", NamedTextColor.YELLOW));
+        // Older and per-player entries may come from the on-disk log
+        plugin.getRequestTracker().runAsync(player, "ai-chat-history", () -> {
+            int historySize = history.size();
+            List<ChatHistory.ChatEntry> recent = playerFilter != null
+                ? history.getPlayerHistory(playerFilter, 10)
+                : history.getRecentHistory(10);
+
+            plugin.getRequestTracker().deliver(() -> {
+                if (recent.isEmpty()) {
+                    player.sendMessage(Component.text(playerFilter != null
+                        ? "No chat history for " + playerFilter + "!"
+                        : "No chat history yet!", NamedTextColor.YELLOW));
+                    return;
+                }
+
+                String heading = playerFilter != null ? String.format("Player: %s\n", playerFilter) : "";
+                giveHistoryBook(player, heading + String.format("Total entries: %d\n", historySize)
+                    + String.format("Showing: %d most recent\n\n", recent.size()), recent);
+                player.sendMessage(Component.text("Chat history book added to inventory!", NamedTextColor.GREEN)
+                    .append(Component.text(" (" + historySize + " total entries)", NamedTextColor.GRAY)));
+            });
+        });
+    }
+
+    private void searchHistory(Player player, String query) {
+        List<ChatHistory.ChatEntry> matches = plugin.getChatHistory().search(query, 10);
+        if (matches.isEmpty()) {
+            player.sendMessage(Component.text("No past chats match \"" + query + "\"", NamedTextColor.YELLOW));
             return;
         }
 
-        List<ChatHistory.ChatEntry> recent = history.getRecentHistory(10);
+        giveHistoryBook(player, String.format("Search: %s\n", query)
+            + String.format("Showing: %d most recent matches\n\n", matches.size()), matches);
+        player.sendMessage(Component.text("Search results book added to inventory!", NamedTextColor.GREEN)
+            .append(Component.text(" (" + matches.size() + " matches)", NamedTextColor.GRAY)));
+    }
 
+    private void giveHistoryBook(Player player, String summary, List<ChatHistory.ChatEntry> entries) {
         StringBuilder bookContent = new StringBuilder();
         bookContent.append("AI Chat History\n");
         bookContent.append("═══════════════\n\n");
-        bookContent.append(String.format("Total entries: %d\n", historySize));
-        bookContent.append(String.format("Showing: %d most recent\n\n", recent.size()));
+        bookContent.append(summary);
 
-        for (int i = 0; i < recent.size(); i++) {
-            ChatHistory.ChatEntry entry = recent.get(i);
+        for (int i = 0; i < entries.size(); i++) {
+            ChatHistory.ChatEntry entry = entries.get(i);
             bookContent.append(String.format("─── Entry #%d ───\n", i + 1));
             bookContent.append(String.format("Player: %s\n", entry.playerName));
             bookContent.append(String.format("Time: %s\n\n", entry.getFormattedTime()));
@@ -338,8 +483,6 @@ public class AIChatCommand implements CommandExecutor, TabCompleter {
         );
 
         player.getInventory().addItem(book);
-        player.sendMessage(Component.text("Chat history book added to inventory!", NamedTextColor.GREEN)
-            .append(Component.text(" (" + historySize + " total entries)", NamedTextColor.GRAY)));
     }
 
     private void showHelp(Player player) {
@@ -367,8 +510,10 @@ public class AIChatCommand implements CommandExecutor, TabCompleter {
             .append(Component.text(" - Show available AI models", NamedTextColor.GRAY)));
         player.sendMessage(Component.text("  /ai-chat tools", NamedTextColor.WHITE)
             .append(Component.text(" - List 9 auto-detected tools", NamedTextColor.GRAY)));
-        player.sendMessage(Component.text("  /ai-chat history", NamedTextColor.WHITE)
+        player.sendMessage(Component.text("  /ai-chat history [player]", NamedTextColor.WHITE)
             .append(Component.text(" - View recent chat history", NamedTextColor.GRAY)));
+        player.sendMessage(Component.text("  /ai-chat history search <terms>", NamedTextColor.WHITE)
+            .append(Component.text(" - Find past answers", NamedTextColor.GRAY)));
         player.sendMessage(Component.text(""));
 
         player.sendMessage(Component.text("How it works:", NamedTextColor.YELLOW, TextDecoration.BOLD));
@@ -3,25 +3,57 @@ package com.minecraft.devcommands.commands;
 import com.minecraft.devcommands.DevCommandsPlugin;
 import com.minecraft.devcommands.api.GitHubClient;
 import com.minecraft.devcommands.api.VLLMClient;
+import com.minecraft.devcommands.cache.ContentCache;
+import com.minecraft.devcommands.cache.RepoTreeIndex;
 import com.minecraft.devcommands.utils.BookGenerator;
+import com.minecraft.devcommands.utils.CancellationToken;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-public class CodeExplainCommand implements CommandExecutor {
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CodeExplainCommand implements CommandExecutor, TabCompleter {
     private final DevCommandsPlugin plugin;
-    private final OkHttpClient httpClient;
+    private final AtomicBoolean indexLoading = new AtomicBoolean();
 
     public CodeExplainCommand(DevCommandsPlugin plugin) {
         this.plugin = plugin;
-        this.httpClient = new OkHttpClient();
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length != 1) {
+            return Collections.emptyList();
+        }
+
+        // Tab completion runs on the main thread, so only use an index that is already built
+        GitHubClient github = plugin.getGitHubClient();
+        RepoTreeIndex index = github.getCachedTreeIndex();
+        if (index == null) {
+            if (indexLoading.compareAndSet(false, true)) {
+                plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                    try {
+                        github.getTreeIndex();
+                    } catch (IOException e) {
+                        plugin.getLogger().warning("Failed to build tree index: " + e.getMessage());
+                    } finally {
+                        indexLoading.set(false);
+                    }
+                });
+            }
+            return Collections.emptyList();
+        }
+
+        return index.complete(args[0], 20);
     }
 
     @Override
@@ -49,32 +81,12 @@ public class CodeExplainCommand implements CommandExecutor {
         player.sendMessage(Component.text("Fetching code from repository...", NamedTextColor.YELLOW));
 
         // Run async
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRequestTracker().runAsync(player, "code-explain", () -> {
             try {
-                // Fetch file content from GitHub
-                String githubToken = resolveConfigValue(plugin.getConfig().getString("github.token", ""));
-                String repository = plugin.getConfig().getString("github.repository", "");
-                String apiUrl = plugin.getConfig().getString("github.api-url", "https://api.github.com");
-
-                String url = String.format("%s/repos/%s/contents/%s", apiUrl, repository, filePath);
-
-                Request request = new Request.Builder()
-                    .url(url)
-                    .header("Authorization", "Bearer " + githubToken)
-                    .header("Accept", "application/vnd.github.v3.raw")
-                    .build();
-
-                String code;
-                try (Response response = httpClient.newCall(request).execute()) {
-                    if (!response.isSuccessful()) {
-                        throw new Exception("Failed to fetch file: " + response.code() + " " + response.message());
-                    }
-                    code = response.body().string();
-                }
-
-                player.sendMessage(Component.text("Analyzing code with AI...", NamedTextColor.YELLOW));
+                // Fetch file content from GitHub (served from the content cache when unchanged)
+                GitHubClient.RepoFile file = plugin.getGitHubClient().getFile(filePath);
+                String code = file.content;
 
-                // Get AI explanation
                 VLLMClient vllm = plugin.getVLLMClient();
                 String promptTemplate = plugin.getConfig().getString("prompts.code-explain",
                     "Explain this code:\n{code}");
@@ -85,8 +97,24 @@ public class CodeExplainCommand implements CommandExecutor {
                     codeSnippet = code.substring(0, 3000) + "\n... (truncated) ...";
                 }
 
-                String prompt = promptTemplate.replace("{code}", codeSnippet);
-                String explanation = vllm.complete(prompt);
+                // Same blob + same prompt + same model always gets the same explanation
+                ContentCache cache = plugin.getContentCache();
+                String explanationKey = cache != null && file.sha != null
+                    ? ContentCache.key("code-explain", vllm.getModel(VLLMClient.Phase.EXPLAIN), promptTemplate, file.sha)
+                    : null;
+
+                String explanation = explanationKey != null ? cache.getString(explanationKey) : null;
+                if (explanation == null) {
+                    player.sendMessage(Component.text("Analyzing code with AI...", NamedTextColor.YELLOW));
+
+                    // Get AI explanation
+                    String prompt = promptTemplate.replace("{code}", codeSnippet);
+                    explanation = vllm.complete(prompt, VLLMClient.Phase.EXPLAIN);
+
+                    if (explanationKey != null) {
+                        cache.putString(explanationKey, explanation);
+                    }
+                }
 
                 // Create book
                 String bookContent = String.format(
@@ -107,16 +135,19 @@ public class CodeExplainCommand implements CommandExecutor {
                 );
 
                 // Give book to player
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.getInventory().addItem(book);
                     player.sendMessage(Component.text("Code explanation complete! Check your inventory.", NamedTextColor.GREEN));
                 });
 
             } catch (Exception e) {
+                if (CancellationToken.isCurrentCancelled()) {
+                    return;
+                }
                 plugin.getLogger().severe("Error explaining code: " + e.getMessage());
                 e.printStackTrace();
 
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.sendMessage(Component.text("Error: " + e.getMessage(), NamedTextColor.RED));
                 });
             }
@@ -124,13 +155,4 @@ public class CodeExplainCommand implements CommandExecutor {
 
         return true;
     }
-
-    private String resolveConfigValue(String value) {
-        if (value.startsWith("${") && value.endsWith("}")) {
-            String envVar = value.substring(2, value.length() - 1);
-            String envValue = System.getenv(envVar);
-            return envValue != null ? envValue : "";
-        }
-        return value;
-    }
 }
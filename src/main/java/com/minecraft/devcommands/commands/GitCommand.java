@@ -35,6 +35,10 @@ public class GitCommand implements CommandExecutor, TabCompleter {
         this.kanbanViewCommand = new KanbanViewCommand(plugin);
     }
 
+    public KanbanViewCommand getKanbanViewCommand() {
+        return kanbanViewCommand;
+    }
+
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!(sender instanceof Player)) {
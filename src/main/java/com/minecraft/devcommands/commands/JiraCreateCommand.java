@@ -73,6 +73,22 @@ public class JiraCreateCommand implements CommandExecutor {
                     player.sendMessage(Component.text("View at: " + issue.url, NamedTextColor.AQUA));
                 });
 
+                // Optionally report the status and assignee Jira actually gave the issue;
+                // fetching it also records it in the mirror
+                if (plugin.getConfig().getBoolean("jira.enrich-created", false)) {
+                    jira.fetchIssueAsync(issue.key).thenAccept(created ->
+                        plugin.getServer().getScheduler().runTask(plugin, () -> {
+                            player.sendMessage(Component.text(
+                                issue.key + " is " + created.status + ", assigned to " + created.assignee,
+                                NamedTextColor.GRAY
+                            ));
+                        })
+                    ).exceptionally(e -> {
+                        plugin.getLogger().warning("Could not fetch created issue " + issue.key + ": " + e.getMessage());
+                        return null;
+                    });
+                }
+
             } catch (Exception e) {
                 plugin.getLogger().severe("Error creating Jira issue: " + e.getMessage());
                 e.printStackTrace();
@@ -2,7 +2,10 @@ package com.minecraft.devcommands.commands;
 
 import com.minecraft.devcommands.DevCommandsPlugin;
 import com.minecraft.devcommands.api.JiraClient;
+import com.minecraft.devcommands.api.JiraMirror;
+import com.minecraft.devcommands.cache.StaleCache;
 import com.minecraft.devcommands.utils.BookGenerator;
+import com.minecraft.devcommands.utils.CancellationToken;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.command.Command;
@@ -11,6 +14,8 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public class JiraListCommand implements CommandExecutor {
@@ -38,11 +43,11 @@ public class JiraListCommand implements CommandExecutor {
 
         // Default to showing open issues in the project
         String projectKey = plugin.getConfig().getString("jira.project-key", "");
+        String filter = args.length > 0 ? args[0].toLowerCase() : "";
         String jql;
         String listName;
 
         if (args.length > 0) {
-            String filter = args[0].toLowerCase();
             switch (filter) {
                 case "mine":
                     jql = "assignee = currentUser() AND resolution = Unresolved ORDER BY updated DESC";
@@ -69,13 +74,32 @@ public class JiraListCommand implements CommandExecutor {
         player.sendMessage(Component.text("Searching Jira...", NamedTextColor.YELLOW));
 
         // Run async to avoid blocking server
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRequestTracker().runAsync(player, "jira-list", () -> {
             try {
                 JiraClient jira = plugin.getJiraClient();
-                List<JiraClient.Issue> issues = jira.searchIssues(jql, 20);
+                int maxResults = plugin.getConfig().getInt("jira.max-results", 50);
+
+                // Falls back to the last result for this search while Jira is down
+                StaleCache.Result<List<JiraClient.Issue>> result = plugin.getStaleCache().get(
+                    "jira-list", jql + "|" + maxResults, () -> {
+                        // Built-in filters are answered from the local mirror once it has synced
+                        JiraMirror mirror = plugin.getJiraMirror();
+                        List<JiraClient.Issue> local = mirror != null ? mirror.query(filter, maxResults) : null;
+                        if (local != null) {
+                            return local;
+                        }
+                        // Pages are fetched lazily as the book fills up, with list fields only
+                        List<JiraClient.Issue> fetched = new ArrayList<>();
+                        Iterator<JiraClient.Issue> results = jira.iterateIssues(jql, JiraClient.LIST_FIELDS, maxResults);
+                        while (fetched.size() < maxResults && results.hasNext()) {
+                            fetched.add(results.next());
+                        }
+                        return fetched;
+                    });
+                List<JiraClient.Issue> issues = result.value;
 
                 if (issues.isEmpty()) {
-                    plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    plugin.getRequestTracker().deliver(() -> {
                         player.sendMessage(Component.text("No issues found!", NamedTextColor.YELLOW));
                     });
                     return;
@@ -85,6 +109,9 @@ public class JiraListCommand implements CommandExecutor {
                 StringBuilder content = new StringBuilder();
                 content.append(listName).append("\n");
                 content.append("Found ").append(issues.size()).append(" issue(s)\n");
+                if (result.stale) {
+                    content.append("(").append(result.staleMarker()).append(")\n");
+                }
                 content.append("---\n\n");
 
                 for (JiraClient.Issue issue : issues) {
@@ -107,16 +134,22 @@ public class JiraListCommand implements CommandExecutor {
                 );
 
                 // Give book to player (must run on main thread)
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.getInventory().addItem(book);
                     player.sendMessage(Component.text("✓ Found " + issues.size() + " issue(s)!", NamedTextColor.GREEN));
+                    if (result.stale) {
+                        player.sendMessage(Component.text("Jira is unavailable; results are " + result.staleMarker(), NamedTextColor.GOLD));
+                    }
                 });
 
             } catch (Exception e) {
+                if (CancellationToken.isCurrentCancelled()) {
+                    return;
+                }
                 plugin.getLogger().severe("Error listing Jira issues: " + e.getMessage());
                 e.printStackTrace();
 
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.sendMessage(Component.text("Error: " + e.getMessage(), NamedTextColor.RED));
                 });
             }
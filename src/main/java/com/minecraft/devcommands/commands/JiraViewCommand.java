@@ -3,6 +3,7 @@ package com.minecraft.devcommands.commands;
 import com.minecraft.devcommands.DevCommandsPlugin;
 import com.minecraft.devcommands.api.JiraClient;
 import com.minecraft.devcommands.utils.BookGenerator;
+import com.minecraft.devcommands.utils.CancellationToken;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.command.Command;
@@ -44,10 +45,12 @@ public class JiraViewCommand implements CommandExecutor {
         player.sendMessage(Component.text("Fetching " + issueKey + "...", NamedTextColor.YELLOW));
 
         // Run async to avoid blocking server
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRequestTracker().runAsync(player, "jira-view", () -> {
             try {
                 JiraClient jira = plugin.getJiraClient();
-                JiraClient.Issue issue = jira.getIssue(issueKey);
+                int maxPages = plugin.getConfig().getInt("settings.max-book-pages", 50);
+                // Render no more of the description than the book can hold
+                JiraClient.Issue issue = jira.getIssue(issueKey, BookGenerator.capacity(maxPages));
 
                 // Format issue into book
                 String bookContent = String.format(
@@ -64,7 +67,6 @@ public class JiraViewCommand implements CommandExecutor {
                     issue.url
                 );
 
-                int maxPages = plugin.getConfig().getInt("settings.max-book-pages", 50);
                 ItemStack book = BookGenerator.createBook(
                     issue.key,
                     "Jira",
@@ -73,16 +75,19 @@ public class JiraViewCommand implements CommandExecutor {
                 );
 
                 // Give book to player (must run on main thread)
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.getInventory().addItem(book);
                     player.sendMessage(Component.text("✓ " + issue.key + " details in book!", NamedTextColor.GREEN));
                 });
 
             } catch (Exception e) {
+                if (CancellationToken.isCurrentCancelled()) {
+                    return;
+                }
                 plugin.getLogger().severe("Error fetching Jira issue: " + e.getMessage());
                 e.printStackTrace();
 
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.sendMessage(Component.text("Error: " + e.getMessage(), NamedTextColor.RED));
                 });
             }
@@ -2,6 +2,7 @@ package com.minecraft.devcommands.commands;
 
 import com.minecraft.devcommands.DevCommandsPlugin;
 import com.minecraft.devcommands.api.GitHubProjectsClient;
+import com.minecraft.devcommands.utils.CancellationToken;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.command.Command;
@@ -37,19 +38,19 @@ public class KanbanListCommand implements CommandExecutor {
         player.sendMessage(Component.text("Fetching projects...", NamedTextColor.YELLOW));
 
         // Run async to avoid blocking server
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRequestTracker().runAsync(player, "kanban-list", () -> {
             try {
                 GitHubProjectsClient projects = plugin.getGitHubProjectsClient();
                 List<GitHubProjectsClient.Project> projectList = projects.listProjects();
 
                 if (projectList.isEmpty()) {
-                    plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    plugin.getRequestTracker().deliver(() -> {
                         player.sendMessage(Component.text("No projects found!", NamedTextColor.YELLOW));
                     });
                     return;
                 }
 
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.sendMessage(Component.text("Projects:", NamedTextColor.GREEN));
                     for (GitHubProjectsClient.Project proj : projectList) {
                         player.sendMessage(Component.text(
@@ -64,10 +65,13 @@ public class KanbanListCommand implements CommandExecutor {
                 });
 
             } catch (Exception e) {
+                if (CancellationToken.isCurrentCancelled()) {
+                    return;
+                }
                 plugin.getLogger().severe("Error listing projects: " + e.getMessage());
                 e.printStackTrace();
 
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.sendMessage(Component.text("Error: " + e.getMessage(), NamedTextColor.RED));
                 });
             }
@@ -2,26 +2,44 @@ package com.minecraft.devcommands.commands;
 
 import com.minecraft.devcommands.DevCommandsPlugin;
 import com.minecraft.devcommands.api.GitHubProjectsClient;
+import com.minecraft.devcommands.cache.StaleCache;
 import com.minecraft.devcommands.utils.BookGenerator;
+import com.minecraft.devcommands.utils.CancellationToken;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class KanbanViewCommand implements CommandExecutor {
+public class KanbanViewCommand implements CommandExecutor, Listener {
     private final DevCommandsPlugin plugin;
 
+    // Board each player last saw, per project number, for "since last view" summaries; dropped on quit
+    private final Map<UUID, Map<Integer, GitHubProjectsClient.ProjectBoard>> lastViewed = new ConcurrentHashMap<>();
+
+    // Rendered book lines by project item ID; only changed items are re-rendered
+    private final Map<String, RenderedItem> renderedItems = new ConcurrentHashMap<>();
+
     public KanbanViewCommand(DevCommandsPlugin plugin) {
         this.plugin = plugin;
     }
 
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        lastViewed.remove(event.getPlayer().getUniqueId());
+    }
+
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!(sender instanceof Player)) {
@@ -54,10 +72,20 @@ public class KanbanViewCommand implements CommandExecutor {
         final int finalProjectNumber = projectNumber;
 
         // Run async to avoid blocking server
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRequestTracker().runAsync(player, "kanban-view", () -> {
             try {
                 GitHubProjectsClient projects = plugin.getGitHubProjectsClient();
-                GitHubProjectsClient.ProjectBoard board = projects.getProjectBoard(finalProjectNumber);
+                GitHubProjectsClient.ProjectBoard board = projects.getBoardSnapshot(finalProjectNumber);
+
+                Map<Integer, GitHubProjectsClient.ProjectBoard> viewed =
+                    lastViewed.computeIfAbsent(player.getUniqueId(), id -> new ConcurrentHashMap<>());
+                GitHubProjectsClient.ProjectBoard previous = viewed.put(finalProjectNumber, board);
+                GitHubProjectsClient.BoardDelta delta = previous != null
+                    ? GitHubProjectsClient.diff(previous, board)
+                    : new GitHubProjectsClient.BoardDelta();
+                for (GitHubProjectsClient.ProjectItem removed : delta.removed) {
+                    renderedItems.remove(removed.id);
+                }
 
                 // Group items by status
                 Map<String, Integer> statusCounts = new HashMap<>();
@@ -65,9 +93,17 @@ public class KanbanViewCommand implements CommandExecutor {
                     statusCounts.put(item.status, statusCounts.getOrDefault(item.status, 0) + 1);
                 }
 
+                // A failing refresh leaves the last good board in place
+                String staleMarker = projects.isStale(finalProjectNumber)
+                    ? "stale as of " + StaleCache.formatTime(projects.getCheckedAt(finalProjectNumber))
+                    : null;
+
                 // Format board into book
                 StringBuilder content = new StringBuilder();
                 content.append(board.title).append("\n");
+                if (staleMarker != null) {
+                    content.append("(").append(staleMarker).append(")\n");
+                }
                 content.append("---\n\n");
 
                 // Show status summary
@@ -75,16 +111,30 @@ public class KanbanViewCommand implements CommandExecutor {
                 for (Map.Entry<String, Integer> entry : statusCounts.entrySet()) {
                     content.append(String.format("  %s: %d\n", entry.getKey(), entry.getValue()));
                 }
+
+                // Show what changed since this player's last view
+                if (!delta.isEmpty()) {
+                    content.append("\nSince last view:\n");
+                    for (Map.Entry<String, Integer> entry : delta.movedTo().entrySet()) {
+                        content.append(String.format("  %d moved to %s\n", entry.getValue(), entry.getKey()));
+                    }
+                    if (!delta.added.isEmpty()) {
+                        content.append(String.format("  %d added\n", delta.added.size()));
+                    }
+                    if (!delta.removed.isEmpty()) {
+                        content.append(String.format("  %d removed\n", delta.removed.size()));
+                    }
+                    if (!delta.updated.isEmpty()) {
+                        content.append(String.format("  %d updated\n", delta.updated.size()));
+                    }
+                }
                 content.append("\n---\n\n");
 
                 // Group and display by status
                 Map<String, StringBuilder> statusGroups = new HashMap<>();
                 for (GitHubProjectsClient.ProjectItem item : board.items) {
                     statusGroups.putIfAbsent(item.status, new StringBuilder());
-                    statusGroups.get(item.status).append(String.format(
-                        "#%d: %s\n  State: %s\n\n",
-                        item.issueNumber, item.title, item.state
-                    ));
+                    statusGroups.get(item.status).append(render(item));
                 }
 
                 for (Map.Entry<String, StringBuilder> entry : statusGroups.entrySet()) {
@@ -104,17 +154,28 @@ public class KanbanViewCommand implements CommandExecutor {
                     maxPages
                 );
 
+                // An unchanged board keeps its old snapshot, so its age is when it was last confirmed
+                long ageSeconds = (System.currentTimeMillis() - projects.getCheckedAt(finalProjectNumber)) / 1000;
+
                 // Give book to player (must run on main thread)
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.getInventory().addItem(book);
                     player.sendMessage(Component.text("✓ Project board with " + board.items.size() + " items!", NamedTextColor.GREEN));
+                    if (staleMarker != null) {
+                        player.sendMessage(Component.text("GitHub is unavailable; board is " + staleMarker, NamedTextColor.GOLD));
+                    } else if (ageSeconds >= 5) {
+                        player.sendMessage(Component.text("Board as of " + ageSeconds + "s ago; refreshing in the background", NamedTextColor.GRAY));
+                    }
                 });
 
             } catch (Exception e) {
+                if (CancellationToken.isCurrentCancelled()) {
+                    return;
+                }
                 plugin.getLogger().severe("Error fetching project board: " + e.getMessage());
                 e.printStackTrace();
 
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.sendMessage(Component.text("Error: " + e.getMessage(), NamedTextColor.RED));
                 });
             }
@@ -122,4 +183,25 @@ public class KanbanViewCommand implements CommandExecutor {
 
         return true;
     }
+
+    private String render(GitHubProjectsClient.ProjectItem item) {
+        RenderedItem cached = renderedItems.get(item.id);
+        if (cached != null && cached.item.sameContent(item)) {
+            return cached.text;
+        }
+
+        String text = String.format("#%d: %s\n  State: %s\n\n", item.issueNumber, item.title, item.state);
+        renderedItems.put(item.id, new RenderedItem(item, text));
+        return text;
+    }
+
+    private static class RenderedItem {
+        final GitHubProjectsClient.ProjectItem item;
+        final String text;
+
+        RenderedItem(GitHubProjectsClient.ProjectItem item, String text) {
+            this.item = item;
+            this.text = text;
+        }
+    }
 }
@@ -2,7 +2,9 @@ package com.minecraft.devcommands.commands;
 
 import com.minecraft.devcommands.DevCommandsPlugin;
 import com.minecraft.devcommands.api.GitHubClient;
+import com.minecraft.devcommands.cache.StaleCache;
 import com.minecraft.devcommands.utils.BookGenerator;
+import com.minecraft.devcommands.utils.CancellationToken;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.command.Command;
@@ -39,13 +41,17 @@ public class PRListCommand implements CommandExecutor {
         player.sendMessage(Component.text("Fetching pull requests...", NamedTextColor.YELLOW));
 
         // Run async
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRequestTracker().runAsync(player, "pr-list", () -> {
             try {
                 GitHubClient github = plugin.getGitHubClient();
-                List<GitHubClient.PullRequest> prs = github.listPullRequests();
+                String repoName = plugin.getConfig().getString("github.repository", "Unknown");
+                // Falls back to the last list fetched while GitHub is down
+                StaleCache.Result<List<GitHubClient.PullRequest>> result =
+                    plugin.getStaleCache().get("pr-list", repoName, github::listPullRequests);
+                List<GitHubClient.PullRequest> prs = result.value;
 
                 if (prs.isEmpty()) {
-                    plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    plugin.getRequestTracker().deliver(() -> {
                         player.sendMessage(Component.text("No open pull requests found!", NamedTextColor.YELLOW));
                     });
                     return;
@@ -54,7 +60,11 @@ public class PRListCommand implements CommandExecutor {
                 // Format PR list
                 StringBuilder content = new StringBuilder();
                 content.append("OPEN PULL REQUESTS\n");
-                content.append("==================\n\n");
+                content.append("==================\n");
+                if (result.stale) {
+                    content.append("(").append(result.staleMarker()).append(")\n");
+                }
+                content.append("\n");
 
                 for (GitHubClient.PullRequest pr : prs) {
                     content.append(String.format(
@@ -69,7 +79,6 @@ public class PRListCommand implements CommandExecutor {
                 content.append("\nUse /git pr-review <number> to review a specific PR");
 
                 int maxPages = plugin.getConfig().getInt("settings.max-book-pages", 50);
-                String repoName = plugin.getConfig().getString("github.repository", "Unknown");
                 ItemStack book = BookGenerator.createBook(
                     "PRs: " + repoName,
                     "GitHub Bot",
@@ -78,16 +87,22 @@ public class PRListCommand implements CommandExecutor {
                 );
 
                 // Give book to player
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.getInventory().addItem(book);
                     player.sendMessage(Component.text("Found " + prs.size() + " open PRs! Check your inventory.", NamedTextColor.GREEN));
+                    if (result.stale) {
+                        player.sendMessage(Component.text("GitHub is unavailable; list is " + result.staleMarker(), NamedTextColor.GOLD));
+                    }
                 });
 
             } catch (Exception e) {
+                if (CancellationToken.isCurrentCancelled()) {
+                    return;
+                }
                 plugin.getLogger().severe("Error listing PRs: " + e.getMessage());
                 e.printStackTrace();
 
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.sendMessage(Component.text("Error: " + e.getMessage(), NamedTextColor.RED));
                 });
             }
@@ -4,6 +4,7 @@ import com.minecraft.devcommands.DevCommandsPlugin;
 import com.minecraft.devcommands.api.GitHubClient;
 import com.minecraft.devcommands.api.VLLMClient;
 import com.minecraft.devcommands.utils.BookGenerator;
+import com.minecraft.devcommands.utils.CancellationToken;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.command.Command;
@@ -43,7 +44,7 @@ public class ReviewPRCommand implements CommandExecutor {
         player.sendMessage(Component.text("Fetching PR data...", NamedTextColor.YELLOW));
 
         // Run async to avoid blocking server
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRequestTracker().runAsync(player, "review-pr", () -> {
             try {
                 GitHubClient github = plugin.getGitHubClient();
                 VLLMClient vllm = plugin.getVLLMClient();
@@ -82,7 +83,7 @@ public class ReviewPRCommand implements CommandExecutor {
                 String prompt = promptTemplate.replace("{pr_data}", prData);
 
                 // Get AI review
-                String review = vllm.complete(prompt);
+                String review = vllm.complete(prompt, VLLMClient.Phase.REVIEW);
 
                 // Format review into book
                 String bookContent = String.format(
@@ -108,16 +109,19 @@ public class ReviewPRCommand implements CommandExecutor {
                 );
 
                 // Give book to player (must run on main thread)
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.getInventory().addItem(book);
                     player.sendMessage(Component.text("PR review complete! Check your inventory.", NamedTextColor.GREEN));
                 });
 
             } catch (Exception e) {
+                if (CancellationToken.isCurrentCancelled()) {
+                    return;
+                }
                 plugin.getLogger().severe("Error reviewing PR: " + e.getMessage());
                 e.printStackTrace();
 
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                plugin.getRequestTracker().deliver(() -> {
                     player.sendMessage(Component.text("Error: " + e.getMessage(), NamedTextColor.RED));
                 });
             }
@@ -0,0 +1,19 @@
+package com.minecraft.devcommands.listeners;
+
+import com.minecraft.devcommands.DevCommandsPlugin;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+public class RequestCancelListener implements Listener {
+    private final DevCommandsPlugin plugin;
+
+    public RequestCancelListener(DevCommandsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.getRequestTracker().cancel(event.getPlayer().getUniqueId());
+    }
+}
@@ -0,0 +1,283 @@
+package com.minecraft.devcommands.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Renders Atlassian Document Format (Jira descriptions and comments) to plain
+ * text. The document is walked with an explicit stack, so nesting depth is not
+ * limited by the call stack, and the walk stops as soon as the character
+ * budget is spent: a huge description costs only as much as the part shown.
+ */
+public class AdfRenderer {
+    private static final String TRUNCATED = "...";
+
+    // Buffers that grew past this are dropped instead of being kept per thread
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private AdfRenderer() {
+    }
+
+    /**
+     * Renders {@code doc} to at most {@code maxChars} characters (plus a
+     * trailing "..." when cut short).
+     */
+    public static String render(JsonObject doc, int maxChars) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        try {
+            boolean complete = walk(doc, out, maxChars);
+            String text = tidy(out, maxChars);
+            return complete ? text : text + TRUNCATED;
+        } finally {
+            if (out.capacity() > MAX_RETAINED_CAPACITY) {
+                BUFFER.remove();
+            }
+        }
+    }
+
+    private static boolean walk(JsonObject doc, StringBuilder out, int maxChars) {
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(doc, null));
+
+        while (!stack.isEmpty()) {
+            if (out.length() >= maxChars) {
+                return false;
+            }
+
+            Frame frame = stack.peek();
+            if (!frame.opened) {
+                frame.opened = true;
+                open(frame, out);
+            }
+
+            if (frame.children != null && frame.next < frame.children.size()) {
+                JsonElement element = frame.children.get(frame.next++);
+                if (!element.isJsonObject()) {
+                    continue;
+                }
+                JsonObject child = element.getAsJsonObject();
+                if (!leaf(child, out, maxChars)) {
+                    stack.push(new Frame(child, frame));
+                }
+            } else {
+                close(frame, out);
+                stack.pop();
+            }
+        }
+        return out.length() <= maxChars;
+    }
+
+    /**
+     * Appends inline nodes directly; returns false for nodes with children.
+     */
+    private static boolean leaf(JsonObject node, StringBuilder out, int maxChars) {
+        switch (type(node)) {
+            case "text":
+                // Copy no more of a long text run than the budget can still hold
+                String text = string(node, "text");
+                int room = maxChars - out.length() + 1;
+                out.append(text, 0, Math.min(text.length(), Math.max(room, 0)));
+                return true;
+            case "hardBreak":
+                out.append('\n');
+                return true;
+            case "rule":
+                out.append("---\n");
+                return true;
+            case "mention":
+            case "status":
+                out.append(attr(node, "text"));
+                return true;
+            case "emoji":
+                String emoji = attr(node, "text");
+                out.append(emoji.isEmpty() ? attr(node, "shortName") : emoji);
+                return true;
+            case "inlineCard":
+            case "blockCard":
+            case "embedCard":
+                out.append(attr(node, "url"));
+                if ("blockCard".equals(type(node)) || "embedCard".equals(type(node))) {
+                    out.append('\n');
+                }
+                return true;
+            case "date":
+                out.append(attr(node, "timestamp"));
+                return true;
+            case "media":
+            case "mediaInline":
+                out.append("[attachment]");
+                return true;
+            default:
+                return !node.has("content");
+        }
+    }
+
+    private static void open(Frame frame, StringBuilder out) {
+        switch (frame.type) {
+            case "listItem":
+                indent(frame, out);
+                Frame list = frame.parent;
+                if (list != null && "orderedList".equals(list.type)) {
+                    out.append(list.counter++).append(". ");
+                } else {
+                    out.append("- ");
+                }
+                break;
+            case "orderedList":
+                String order = attr(frame.node, "order");
+                frame.counter = order.isEmpty() ? 1 : parseInt(order, 1);
+                break;
+            case "blockquote":
+                out.append("> ");
+                break;
+            case "panel":
+                String panelType = attr(frame.node, "panelType");
+                if (!panelType.isEmpty()) {
+                    out.append('[').append(panelType).append("] ");
+                }
+                break;
+            case "expand":
+            case "nestedExpand":
+                String title = attr(frame.node, "title");
+                if (!title.isEmpty()) {
+                    out.append(title).append('\n');
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void close(Frame frame, StringBuilder out) {
+        switch (frame.type) {
+            case "paragraph":
+            case "heading":
+            case "codeBlock":
+                // Table cells keep their paragraphs on the row's line
+                endBlock(out, frame.inTableCell() ? " " : "\n");
+                break;
+            case "tableCell":
+            case "tableHeader":
+                trimTrailingSpace(out);
+                out.append(" | ");
+                break;
+            case "tableRow":
+                trimTrailingSpace(out);
+                if (out.length() >= 2 && out.charAt(out.length() - 1) == '|') {
+                    out.setLength(out.length() - 2);
+                }
+                out.append('\n');
+                break;
+            case "bulletList":
+            case "orderedList":
+            case "table":
+            case "panel":
+            case "blockquote":
+            case "mediaSingle":
+            case "mediaGroup":
+                endBlock(out, "\n");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void endBlock(StringBuilder out, String separator) {
+        if (out.length() > 0 && out.charAt(out.length() - 1) != '\n') {
+            out.append(separator);
+        }
+    }
+
+    private static void indent(Frame frame, StringBuilder out) {
+        int depth = 0;
+        for (Frame f = frame.parent; f != null; f = f.parent) {
+            if ("bulletList".equals(f.type) || "orderedList".equals(f.type)) {
+                depth++;
+            }
+        }
+        for (int i = 1; i < depth; i++) {
+            out.append("  ");
+        }
+    }
+
+    private static void trimTrailingSpace(StringBuilder out) {
+        while (out.length() > 0 && out.charAt(out.length() - 1) == ' ') {
+            out.setLength(out.length() - 1);
+        }
+    }
+
+    /**
+     * Cuts to the budget, collapses runs of blank lines and trims.
+     */
+    private static String tidy(StringBuilder out, int maxChars) {
+        if (out.length() > maxChars) {
+            out.setLength(maxChars);
+        }
+
+        int write = 0;
+        int newlines = 0;
+        for (int read = 0; read < out.length(); read++) {
+            char c = out.charAt(read);
+            newlines = c == '\n' ? newlines + 1 : 0;
+            if (newlines <= 2) {
+                out.setCharAt(write++, c);
+            }
+        }
+        out.setLength(write);
+        return out.toString().trim();
+    }
+
+    private static String type(JsonObject node) {
+        return string(node, "type");
+    }
+
+    private static String attr(JsonObject node, String name) {
+        return node.has("attrs") && node.get("attrs").isJsonObject() ? string(node.getAsJsonObject("attrs"), name) : "";
+    }
+
+    private static String string(JsonObject node, String name) {
+        JsonElement value = node.get(name);
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : "";
+    }
+
+    private static int parseInt(String value, int fallback) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static class Frame {
+        final JsonObject node;
+        final Frame parent;
+        final String type;
+        final JsonArray children;
+        int next;
+        int counter = 1;
+        boolean opened;
+
+        Frame(JsonObject node, Frame parent) {
+            this.node = node;
+            this.parent = parent;
+            this.type = type(node);
+            this.children = node.has("content") && node.get("content").isJsonArray() ? node.getAsJsonArray("content") : null;
+        }
+
+        boolean inTableCell() {
+            for (Frame f = parent; f != null; f = f.parent) {
+                if ("tableCell".equals(f.type) || "tableHeader".equals(f.type)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
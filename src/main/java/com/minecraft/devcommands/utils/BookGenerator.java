@@ -11,6 +11,13 @@ public class BookGenerator {
     private static final int MAX_CHARS_PER_PAGE = 256;
     private static final int MAX_LINES_PER_PAGE = 14;
 
+    /**
+     * Roughly how many characters a book of {@code maxPages} pages can show.
+     */
+    public static int capacity(int maxPages) {
+        return maxPages * MAX_CHARS_PER_PAGE;
+    }
+
     public static ItemStack createBook(String title, String author, String content, int maxPages) {
         ItemStack book = new ItemStack(Material.WRITTEN_BOOK);
         BookMeta meta = (BookMeta) book.getItemMeta();
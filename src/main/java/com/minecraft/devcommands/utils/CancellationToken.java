@@ -0,0 +1,116 @@
+package com.minecraft.devcommands.utils;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cancellation signal for one command execution. While a task runs under
+ * {@link #run(Runnable)} the token is the thread's current one, so HTTP
+ * clients and loops deep in the call stack can find it without it being
+ * passed through every signature.
+ */
+public class CancellationToken {
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+    private static final Logger LOGGER = Logger.getLogger(CancellationToken.class.getName());
+
+    private final List<Runnable> listeners = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    /**
+     * The token of the task running on this thread, or null outside one.
+     */
+    public static CancellationToken current() {
+        return CURRENT.get();
+    }
+
+    public static boolean isCurrentCancelled() {
+        CancellationToken token = CURRENT.get();
+        return token != null && token.cancelled;
+    }
+
+    /**
+     * Throws if the current task has been cancelled, for checkpoints between
+     * steps that don't go through HTTP.
+     */
+    public static void throwIfCurrentCancelled() throws InterruptedIOException {
+        if (isCurrentCancelled()) {
+            throw new InterruptedIOException("Request cancelled");
+        }
+    }
+
+    /**
+     * Runs {@code task} on this thread with this token as the current one.
+     */
+    public void run(Runnable task) {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            task.run();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs {@code task} on this thread with no current token, for writes that
+     * must finish once started: cancelling half-way would leave the player not
+     * knowing whether the change was made.
+     */
+    public static <T> T detached(Callable<T> task) throws Exception {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.remove();
+        try {
+            return task.call();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Calls {@code listener} on cancellation, or right away if that already
+     * happened.
+     */
+    public void onCancel(Runnable listener) {
+        synchronized (this) {
+            if (!cancelled) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+
+        for (Runnable listener : toRun) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Cancellation listener failed", e);
+            }
+        }
+    }
+}
@@ -7,25 +7,126 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+/**
+ * Recent AI chat exchanges. The last {@value #MAX_HISTORY} are kept in memory;
+ * when a {@link ChatLog} is attached every entry is also persisted, and older
+ * or per-player lookups are served from disk. A {@link ChatSearchIndex} over
+ * the last few hundred entries answers keyword searches.
+ */
 public class ChatHistory {
     private static final int MAX_HISTORY = 50;
+    private static final int DEFAULT_SEARCH_ENTRIES = 1000;
     private final LinkedList<ChatEntry> history = new LinkedList<>();
+    private final ChatLog log;
+    private final ChatSearchIndex searchIndex;
     private static final DateTimeFormatter TIME_FORMATTER =
         DateTimeFormatter.ofPattern("MM/dd HH:mm:ss").withZone(ZoneId.systemDefault());
 
+    public ChatHistory() {
+        this(null, DEFAULT_SEARCH_ENTRIES);
+    }
+
+    public ChatHistory(ChatLog log, int searchEntries) {
+        this.log = log;
+        this.searchIndex = new ChatSearchIndex(searchEntries);
+
+        if (log != null) {
+            // Re-index what survived the restart, oldest first
+            List<ChatEntry> persisted = log.getRecent(searchEntries);
+            for (int i = persisted.size() - 1; i >= 0; i--) {
+                searchIndex.add(persisted.get(i));
+            }
+            for (int i = 0; i < Math.min(MAX_HISTORY, persisted.size()); i++) {
+                history.addLast(persisted.get(i));
+            }
+        }
+    }
+
     public void addEntry(String playerName, String prompt, String response) {
-        history.addFirst(new ChatEntry(playerName, prompt, response, Instant.now()));
-        if (history.size() > MAX_HISTORY) {
-            history.removeLast();
+        ChatEntry entry = new ChatEntry(playerName, prompt, response, Instant.now());
+        synchronized (history) {
+            history.addFirst(entry);
+            if (history.size() > MAX_HISTORY) {
+                history.removeLast();
+            }
+        }
+        searchIndex.add(entry);
+        if (log != null) {
+            log.append(entry);
         }
     }
 
+    /**
+     * Entries whose prompt or response contains every word of {@code query},
+     * most recent first. Only the most recent entries are searchable.
+     */
+    public List<ChatEntry> search(String query, int count) {
+        return searchIndex.search(query, count);
+    }
+
+    public List<String> completeSearchTerm(String prefix, int count) {
+        return searchIndex.completeTerm(prefix, count);
+    }
+
     public List<ChatEntry> getRecentHistory(int count) {
-        return new ArrayList<>(history.subList(0, Math.min(count, history.size())));
+        synchronized (history) {
+            // The memory ring also covers entries still queued for the disk writer
+            if (log == null || count <= history.size()) {
+                return new ArrayList<>(history.subList(0, Math.min(count, history.size())));
+            }
+        }
+        return log.getRecent(count);
+    }
+
+    /**
+     * A player's most recent entries first. Reads from disk when persistence is on.
+     */
+    public List<ChatEntry> getPlayerHistory(String playerName, int count) {
+        if (log != null) {
+            return log.getByPlayer(playerName, count);
+        }
+        List<ChatEntry> result = new ArrayList<>();
+        synchronized (history) {
+            for (ChatEntry entry : history) {
+                if (entry.playerName.equalsIgnoreCase(playerName) && result.size() < count) {
+                    result.add(entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Entries between two instants, most recent first.
+     */
+    public List<ChatEntry> getHistoryBetween(Instant from, Instant to, int count) {
+        if (log != null) {
+            return log.getBetween(from, to, count);
+        }
+        List<ChatEntry> result = new ArrayList<>();
+        synchronized (history) {
+            for (ChatEntry entry : history) {
+                if (!entry.timestamp.isBefore(from) && entry.timestamp.isBefore(to) && result.size() < count) {
+                    result.add(entry);
+                }
+            }
+        }
+        return result;
     }
 
     public int size() {
-        return history.size();
+        synchronized (history) {
+            return log != null ? Math.max(log.size(), history.size()) : history.size();
+        }
+    }
+
+    /**
+     * Flushes queued entries to disk.
+     */
+    public void close() {
+        if (log != null) {
+            log.close();
+        }
     }
 
     public static class ChatEntry {
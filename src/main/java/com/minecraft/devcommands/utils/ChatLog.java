@@ -0,0 +1,518 @@
+package com.minecraft.devcommands.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only chat log stored as numbered segment files:
+ *
+ * <pre>
+ * record: [int length][int crc32][long timestamp][short nameLength][name][deflated prompt + response]
+ * </pre>
+ *
+ * Timestamp and player name stay uncompressed so the in-memory index can be
+ * rebuilt on startup by reading record headers only. Appends are queued and
+ * written by one background thread, which fsyncs once per batch; a record is
+ * visible to readers once it is on disk. Reads go through memory-mapped
+ * segments and inflate only the records asked for.
+ */
+public class ChatLog {
+    private static final long SEGMENT_BYTES = 4 * 1024 * 1024;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 2;
+    private static final int MAX_BATCH = 256;
+
+    // Queued by close(); interrupting the writer instead would close its FileChannel mid-write
+    private static final ChatHistory.ChatEntry STOP = new ChatHistory.ChatEntry("", "", "", Instant.EPOCH);
+
+    private final File directory;
+    private final long maxBytes;
+    private final Logger logger;
+    private final BlockingQueue<ChatHistory.ChatEntry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    // Index, guarded by this
+    private final List<Segment> segments = new ArrayList<>();
+    private long[] timestamps = new long[256];
+    private int[] segmentIds = new int[256];
+    private int[] offsets = new int[256];
+    private String[] players = new String[256];
+    private int count;
+    private int firstLive;
+    private final Map<String, IntList> byPlayer = new HashMap<>();
+
+    private RandomAccessFile active;
+
+    public ChatLog(File directory, long maxBytes, Logger logger) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.logger = logger;
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            logger.warning("Could not create chat history directory: " + directory);
+        }
+        loadIndex();
+
+        this.writer = new Thread(this::writeLoop, "DevCommands-ChatLog");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues an entry for writing; never blocks.
+     */
+    public void append(ChatHistory.ChatEntry entry) {
+        queue.offer(entry);
+    }
+
+    public synchronized int size() {
+        return count - firstLive;
+    }
+
+    /**
+     * Most recent entries first.
+     */
+    public List<ChatHistory.ChatEntry> getRecent(int limit) {
+        int[] positions;
+        synchronized (this) {
+            int n = Math.min(limit, count - firstLive);
+            positions = new int[n];
+            for (int i = 0; i < n; i++) {
+                positions[i] = count - 1 - i;
+            }
+        }
+        return read(positions);
+    }
+
+    /**
+     * A player's most recent entries first. Player names match case-insensitively.
+     */
+    public List<ChatHistory.ChatEntry> getByPlayer(String playerName, int limit) {
+        int[] positions;
+        synchronized (this) {
+            IntList list = byPlayer.get(playerName.toLowerCase(Locale.ROOT));
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            List<Integer> live = new ArrayList<>();
+            for (int i = list.size - 1; i >= 0 && live.size() < limit; i--) {
+                int position = list.values[i];
+                if (position < firstLive) {
+                    break;
+                }
+                live.add(position);
+            }
+            positions = live.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return read(positions);
+    }
+
+    /**
+     * Entries with {@code from <= timestamp < to}, most recent first.
+     */
+    public List<ChatHistory.ChatEntry> getBetween(Instant from, Instant to, int limit) {
+        int[] positions;
+        synchronized (this) {
+            int start = lowerBound(from.toEpochMilli());
+            int end = lowerBound(to.toEpochMilli());
+            int n = Math.min(limit, end - start);
+            positions = new int[n];
+            for (int i = 0; i < n; i++) {
+                positions[i] = end - 1 - i;
+            }
+        }
+        return read(positions);
+    }
+
+    /**
+     * Writes everything queued so far and stops the writer.
+     */
+    public void close() {
+        queue.offer(STOP);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closeActive();
+        }
+    }
+
+    private void writeLoop() {
+        List<ChatHistory.ChatEntry> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - batch.size());
+            stopping = batch.remove(STOP);
+
+            if (!batch.isEmpty()) {
+                try {
+                    writeBatch(batch);
+                } catch (IOException e) {
+                    logger.warning("Failed to write chat history: " + e.getMessage());
+                    // Start the next batch in a fresh segment rather than after a torn record
+                    synchronized (this) {
+                        closeActive();
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<ChatHistory.ChatEntry> batch) throws IOException {
+        // Encode outside the lock; the index only changes once the batch is durable
+        List<byte[]> records = new ArrayList<>(batch.size());
+        for (ChatHistory.ChatEntry entry : batch) {
+            records.add(encode(entry));
+        }
+
+        int[] written = new int[batch.size()];
+        int[] writtenSegment = new int[batch.size()];
+        RandomAccessFile file;
+        synchronized (this) {
+            file = active;
+        }
+        for (int i = 0; i < records.size(); i++) {
+            if (file == null || file.length() + records.get(i).length > SEGMENT_BYTES) {
+                if (file != null) {
+                    file.getChannel().force(false);
+                }
+                file = rollSegment();
+            }
+            long offset = file.length();
+            file.seek(offset);
+            file.write(records.get(i));
+            written[i] = (int) offset;
+            writtenSegment[i] = currentSegmentId();
+        }
+        file.getChannel().force(false);
+
+        synchronized (this) {
+            for (int i = 0; i < batch.size(); i++) {
+                addToIndex(batch.get(i).timestamp.toEpochMilli(), writtenSegment[i], written[i], batch.get(i).playerName);
+            }
+            enforceBudget();
+        }
+    }
+
+    private synchronized RandomAccessFile rollSegment() throws IOException {
+        closeActive();
+        int id = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).id + 1;
+        File file = new File(directory, String.format("segment-%08d.log", id));
+        segments.add(new Segment(id, file));
+        active = new RandomAccessFile(file, "rw");
+        return active;
+    }
+
+    private synchronized int currentSegmentId() {
+        return segments.get(segments.size() - 1).id;
+    }
+
+    private void closeActive() {
+        if (active != null) {
+            try {
+                active.close();
+            } catch (IOException e) {
+                logger.warning("Failed to close chat history segment: " + e.getMessage());
+            }
+            active = null;
+        }
+    }
+
+    private static byte[] encode(ChatHistory.ChatEntry entry) {
+        byte[] name = entry.playerName.getBytes(StandardCharsets.UTF_8);
+        byte[] prompt = entry.prompt.getBytes(StandardCharsets.UTF_8);
+        byte[] response = entry.response.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer plain = ByteBuffer.allocate(8 + prompt.length + response.length);
+        plain.putInt(prompt.length).put(prompt).putInt(response.length).put(response);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(plain.array());
+        deflater.finish();
+        byte[] buffer = new byte[plain.capacity() + 64];
+        int compressed = 0;
+        while (!deflater.finished()) {
+            if (compressed == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            compressed += deflater.deflate(buffer, compressed, buffer.length - compressed);
+        }
+        deflater.end();
+
+        int length = HEADER_BYTES + name.length + compressed;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length);
+        record.putInt(0); // crc placeholder
+        record.putLong(entry.timestamp.toEpochMilli());
+        record.putShort((short) name.length);
+        record.put(name);
+        record.put(buffer, 0, compressed);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, length - 8);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    private List<ChatHistory.ChatEntry> read(int[] positions) {
+        List<ChatHistory.ChatEntry> result = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            int segmentId;
+            int offset;
+            Segment segment;
+            synchronized (this) {
+                if (position < firstLive) {
+                    continue;
+                }
+                segmentId = segmentIds[position];
+                offset = offsets[position];
+                segment = findSegment(segmentId);
+            }
+            if (segment == null) {
+                continue;
+            }
+            try {
+                result.add(decode(segment.map(), offset));
+            } catch (IOException | DataFormatException e) {
+                logger.warning("Failed to read chat history record: " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private static ChatHistory.ChatEntry decode(MappedByteBuffer mapped, int offset) throws DataFormatException {
+        ByteBuffer record = mapped.duplicate();
+        record.position(offset);
+        int length = record.getInt();
+        record.getInt(); // crc, checked when the index is rebuilt
+        long timestamp = record.getLong();
+        byte[] name = new byte[record.getShort()];
+        record.get(name);
+
+        ByteBuffer compressed = record.slice();
+        compressed.limit(length - HEADER_BYTES - name.length);
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] buffer = new byte[Math.max(256, compressed.remaining() * 4)];
+            int size = 0;
+            while (!inflater.finished()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int n = inflater.inflate(buffer, size, buffer.length - size);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated record");
+                }
+                size += n;
+            }
+
+            ByteBuffer plain = ByteBuffer.wrap(buffer, 0, size);
+            byte[] prompt = new byte[plain.getInt()];
+            plain.get(prompt);
+            byte[] response = new byte[plain.getInt()];
+            plain.get(response);
+            return new ChatHistory.ChatEntry(
+                new String(name, StandardCharsets.UTF_8),
+                new String(prompt, StandardCharsets.UTF_8),
+                new String(response, StandardCharsets.UTF_8),
+                Instant.ofEpochMilli(timestamp)
+            );
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void loadIndex() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("segment-") && name.endsWith(".log"));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+
+        for (File file : files) {
+            int id;
+            try {
+                id = Integer.parseInt(file.getName().substring(8, 16));
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                continue;
+            }
+            Segment segment = new Segment(id, file);
+            segments.add(segment);
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                long valid = scanSegment(segment, raf);
+                if (valid < raf.length()) {
+                    // A crash mid-write left a torn record at the end
+                    raf.setLength(valid);
+                }
+            } catch (IOException e) {
+                logger.warning("Failed to index " + file.getName() + ": " + e.getMessage());
+            }
+        }
+
+        if (!segments.isEmpty()) {
+            try {
+                active = new RandomAccessFile(segments.get(segments.size() - 1).file, "rw");
+            } catch (IOException e) {
+                logger.warning("Failed to open chat history segment: " + e.getMessage());
+            }
+            logger.info(String.format("Chat history: %d entries in %d segment(s)", count, segments.size()));
+        }
+    }
+
+    private long scanSegment(Segment segment, RandomAccessFile raf) throws IOException {
+        FileChannel channel = raf.getChannel();
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        int position = 0;
+        while (position + HEADER_BYTES <= mapped.limit()) {
+            int length = mapped.getInt(position);
+            if (length < HEADER_BYTES || position + length > mapped.limit()) {
+                break;
+            }
+
+            CRC32 crc = new CRC32();
+            ByteBuffer body = mapped.duplicate();
+            body.position(position + 8).limit(position + length);
+            crc.update(body);
+            if ((int) crc.getValue() != mapped.getInt(position + 4)) {
+                break;
+            }
+
+            long timestamp = mapped.getLong(position + 8);
+            byte[] name = new byte[mapped.getShort(position + 16)];
+            mapped.get(position + HEADER_BYTES, name);
+            addToIndex(timestamp, segment.id, position, new String(name, StandardCharsets.UTF_8));
+            position += length;
+        }
+        return position;
+    }
+
+    private void addToIndex(long timestamp, int segmentId, int offset, String player) {
+        if (count == timestamps.length) {
+            int capacity = count * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            segmentIds = Arrays.copyOf(segmentIds, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            players = Arrays.copyOf(players, capacity);
+        }
+        // Keep timestamps non-decreasing so range lookups can binary search
+        timestamps[count] = count > 0 ? Math.max(timestamp, timestamps[count - 1]) : timestamp;
+        segmentIds[count] = segmentId;
+        offsets[count] = offset;
+        players[count] = player;
+        byPlayer.computeIfAbsent(player.toLowerCase(Locale.ROOT), p -> new IntList()).add(count);
+        count++;
+    }
+
+    private void enforceBudget() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.file.length();
+        }
+
+        // Drop whole segments, oldest first, but never the one being written
+        while (total > maxBytes && segments.size() > 1) {
+            Segment oldest = segments.remove(0);
+            total -= oldest.file.length();
+            while (firstLive < count && segmentIds[firstLive] == oldest.id) {
+                firstLive++;
+            }
+            oldest.unmap();
+            if (!oldest.file.delete()) {
+                logger.warning("Could not delete old chat history segment " + oldest.file.getName());
+            }
+        }
+    }
+
+    private Segment findSegment(int id) {
+        for (Segment segment : segments) {
+            if (segment.id == id) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    private int lowerBound(long timestamp) {
+        int lo = firstLive;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] < timestamp) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static class Segment {
+        final int id;
+        final File file;
+        private MappedByteBuffer mapped;
+
+        Segment(int id, File file) {
+            this.id = id;
+            this.file = file;
+        }
+
+        /**
+         * Maps the segment, remapping when it has grown since the last read.
+         */
+        synchronized MappedByteBuffer map() throws IOException {
+            long length = file.length();
+            if (mapped == null || mapped.limit() < length) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                    mapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+                }
+            }
+            return mapped;
+        }
+
+        synchronized void unmap() {
+            mapped = null;
+        }
+    }
+
+    private static class IntList {
+        int[] values = new int[8];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
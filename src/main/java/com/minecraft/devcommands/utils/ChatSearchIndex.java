@@ -0,0 +1,145 @@
+package com.minecraft.devcommands.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Inverted index over the prompts and responses of the most recent chat
+ * entries. Entries get increasing sequence numbers, so every posting list is
+ * sorted and evicting the oldest entry only ever pops list heads.
+ */
+public class ChatSearchIndex {
+    private static final int MIN_TERM_LENGTH = 2;
+
+    private final int capacity;
+    private final ChatHistory.ChatEntry[] entries;
+    private final TreeMap<String, ArrayDeque<Long>> postings = new TreeMap<>();
+    private long nextSeq;
+
+    public ChatSearchIndex(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.entries = new ChatHistory.ChatEntry[this.capacity];
+    }
+
+    public synchronized void add(ChatHistory.ChatEntry entry) {
+        long seq = nextSeq++;
+        int slot = (int) (seq % capacity);
+        if (entries[slot] != null) {
+            evict(seq - capacity, entries[slot]);
+        }
+        entries[slot] = entry;
+
+        for (String term : terms(entry)) {
+            postings.computeIfAbsent(term, t -> new ArrayDeque<>()).addLast(seq);
+        }
+    }
+
+    /**
+     * Entries containing every term of {@code query}, most recent first.
+     */
+    public synchronized List<ChatHistory.ChatEntry> search(String query, int limit) {
+        List<ChatHistory.ChatEntry> result = new ArrayList<>();
+        Set<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return result;
+        }
+
+        // Walk the rarest term's postings and probe the others
+        ArrayDeque<Long> rarest = null;
+        List<ArrayDeque<Long>> lists = new ArrayList<>();
+        for (String term : queryTerms) {
+            ArrayDeque<Long> list = postings.get(term);
+            if (list == null) {
+                return result;
+            }
+            lists.add(list);
+            if (rarest == null || list.size() < rarest.size()) {
+                rarest = list;
+            }
+        }
+
+        List<Set<Long>> others = new ArrayList<>();
+        for (ArrayDeque<Long> list : lists) {
+            if (list != rarest) {
+                others.add(new HashSet<>(list));
+            }
+        }
+
+        Iterator<Long> it = rarest.descendingIterator();
+        while (it.hasNext() && result.size() < limit) {
+            long seq = it.next();
+            boolean all = true;
+            for (Set<Long> other : others) {
+                if (!other.contains(seq)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                result.add(entries[(int) (seq % capacity)]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indexed terms starting with {@code prefix}, for tab completion.
+     */
+    public synchronized List<String> completeTerm(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        String from = prefix.toLowerCase(Locale.ROOT);
+        for (String term : postings.tailMap(from, true).keySet()) {
+            if (!term.startsWith(from) || result.size() >= limit) {
+                break;
+            }
+            result.add(term);
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return (int) Math.min(nextSeq, capacity);
+    }
+
+    private void evict(long seq, ChatHistory.ChatEntry entry) {
+        for (String term : terms(entry)) {
+            ArrayDeque<Long> list = postings.get(term);
+            if (list != null && !list.isEmpty() && list.peekFirst() == seq) {
+                list.pollFirst();
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static Set<String> terms(ChatHistory.ChatEntry entry) {
+        Set<String> terms = tokenize(entry.prompt);
+        terms.addAll(tokenize(entry.response));
+        return terms;
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                if (i - start >= MIN_TERM_LENGTH) {
+                    terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,148 @@
+package com.minecraft.devcommands.utils;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recognises /ai-chat messages that name a read-only tool outright ("list
+ * PRs", "show bugs", "view SCRUM-12") so they can go straight to
+ * {@link ToolExecutor} without asking the model which tool to use. Patterns
+ * match the whole message; anything with extra wording falls through to the
+ * model. Tools that change state are never routed.
+ */
+public class IntentRouter {
+    private static final String VERB = "(?:list|show|get|view|display|see)(?: me)?(?: the)?\\s*";
+    private static final String PATH = "([\\w./-]+)";
+    // Needs a slash or an extension, so "explain recursion" stays with the model
+    private static final String FILE_PATH = "([\\w.-]*(?:/[\\w.-]+)+/?|[\\w-]+\\.[a-z0-9]{1,5})";
+    // Tools whose output is itself the answer; review and explain only fetch the model's input
+    private static final Set<String> SELF_ANSWERING = Set.of(
+        "git_pr_list", "jira_list", "jira_view", "git_list_files", "git_search_code");
+
+    private final List<Intent> intents = new ArrayList<>();
+
+    /**
+     * @param projectKey the configured Jira project, whose keys may be routed
+     *                   without a verb; empty to accept any uppercase key
+     */
+    public IntentRouter(String projectKey) {
+        add("(?:" + VERB + ")?(?:all )?(?:the )?(?:open |current )?(?:prs|pull requests|pull reqs)",
+            "git_pr_list", m -> new JsonObject());
+
+        add("(?:" + VERB + ")?(?:all )?(?:the )?(?:open )?bugs",
+            "jira_list", m -> filter("bugs"));
+        add("(?:" + VERB + ")?(my|mine|all|all the|open)? ?(?:jira )?(?:issues|tickets)(?: assigned to me)?",
+            "jira_list", m -> filter(jiraFilter(m.group(1))));
+
+        add("(?:view|show|open|get|display)(?: me)?(?: issue| ticket)? ([a-z][a-z0-9]+-\\d+)",
+            "jira_view", m -> argument("issue_key", m.group(1).toUpperCase(Locale.ROOT)));
+        // A bare key must really look like one, so "gpt-4" or "utf-8" stays with the model
+        add("(" + bareIssueKey(projectKey) + "-\\d+)",
+            "jira_view", m -> argument("issue_key", m.group(1).toUpperCase(Locale.ROOT)));
+
+        add("review (?:the )?(?:pr |pull request )?#?(\\d+|latest)",
+            "git_pr_review", m -> argument("pr_number", m.group(1)));
+        add("review (?:the )?latest (?:pr|pull request)",
+            "git_pr_review", m -> argument("pr_number", "latest"));
+
+        add("(?:" + VERB + ")?files(?: in " + PATH + ")?",
+            "git_list_files", m -> argument("path", m.group(1) != null ? m.group(1) : ""));
+        add("(?:ls|list) " + FILE_PATH,
+            "git_list_files", m -> argument("path", m.group(1)));
+
+        add("explain (?:the )?(?:file )?" + FILE_PATH,
+            "code_explain", m -> argument("file_path", m.group(1)));
+
+        add("(?:grep|(?:search|find in) (?:the )?(?:code|repo)(?: for)?) (.+)",
+            "git_search_code", m -> argument("query", m.group(1)));
+    }
+
+    /**
+     * Returns the tool call for a message that unambiguously asks for one, or
+     * null if the model should decide.
+     */
+    public Route route(String message) {
+        String normalized = message.trim().replaceAll("[?!.]+$", "").replaceAll("\\s+", " ");
+        for (Intent intent : intents) {
+            Matcher matcher = intent.pattern.matcher(normalized);
+            if (matcher.matches()) {
+                return new Route(intent.tool, intent.arguments.apply(matcher));
+            }
+        }
+        return null;
+    }
+
+    private void add(String regex, String tool, Function<Matcher, JsonObject> arguments) {
+        intents.add(new Intent(Pattern.compile(regex, Pattern.CASE_INSENSITIVE), tool, arguments));
+    }
+
+    private static String bareIssueKey(String projectKey) {
+        if (projectKey != null && !projectKey.isBlank()) {
+            return Pattern.quote(projectKey.trim());
+        }
+        return "(?-i:[A-Z][A-Z0-9]+)";
+    }
+
+    private static String jiraFilter(String qualifier) {
+        if (qualifier == null) {
+            return "";
+        }
+        switch (qualifier.toLowerCase(Locale.ROOT)) {
+            case "my":
+            case "mine":
+                return "mine";
+            case "all":
+            case "all the":
+                return "all";
+            default:
+                return "";
+        }
+    }
+
+    private static JsonObject filter(String value) {
+        return argument("filter", value);
+    }
+
+    private static JsonObject argument(String name, String value) {
+        JsonObject arguments = new JsonObject();
+        arguments.addProperty(name, value);
+        return arguments;
+    }
+
+    private static class Intent {
+        final Pattern pattern;
+        final String tool;
+        final Function<Matcher, JsonObject> arguments;
+
+        Intent(Pattern pattern, String tool, Function<Matcher, JsonObject> arguments) {
+            this.pattern = pattern;
+            this.tool = tool;
+            this.arguments = arguments;
+        }
+    }
+
+    public static class Route {
+        public final String tool;
+        public final JsonObject arguments;
+
+        public Route(String tool, JsonObject arguments) {
+            this.tool = tool;
+            this.arguments = arguments;
+        }
+
+        /**
+         * Whether the tool's output can be shown as the reply without the
+         * model writing one.
+         */
+        public boolean answersDirectly() {
+            return SELF_ANSWERING.contains(tool);
+        }
+    }
+}
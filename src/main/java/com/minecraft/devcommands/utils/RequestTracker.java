@@ -0,0 +1,108 @@
+package com.minecraft.devcommands.utils;
+
+import com.minecraft.devcommands.DevCommandsPlugin;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the in-flight command executions of each player. Starting a command
+ * cancels the player's previous run of the same command, and quitting
+ * cancels all of them, so abandoned work stops holding HTTP connections and
+ * model slots.
+ */
+public class RequestTracker {
+    private final DevCommandsPlugin plugin;
+    private final Map<UUID, Map<String, CancellationToken>> active = new HashMap<>();
+
+    public RequestTracker(DevCommandsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Runs {@code task} asynchronously under a new token for this player and
+     * command, superseding any run still in flight.
+     */
+    public CancellationToken runAsync(Player player, String command, Runnable task) {
+        UUID playerId = player.getUniqueId();
+        CancellationToken token = begin(playerId, command);
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                token.run(task);
+            } finally {
+                finish(playerId, command, token);
+            }
+        });
+        return token;
+    }
+
+    /**
+     * Schedules {@code task} on the main thread unless the current task has
+     * been cancelled by then, so nothing reaches a player who has moved on or
+     * logged out.
+     */
+    public void deliver(Runnable task) {
+        CancellationToken token = CancellationToken.current();
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            if (token == null || !token.isCancelled()) {
+                task.run();
+            }
+        });
+    }
+
+    public CancellationToken begin(UUID playerId, String command) {
+        CancellationToken token = new CancellationToken();
+        CancellationToken previous;
+        synchronized (this) {
+            previous = active.computeIfAbsent(playerId, id -> new HashMap<>()).put(command, token);
+        }
+        if (previous != null) {
+            previous.cancel();
+        }
+        return token;
+    }
+
+    public synchronized void finish(UUID playerId, String command, CancellationToken token) {
+        Map<String, CancellationToken> commands = active.get(playerId);
+        if (commands != null && commands.get(command) == token) {
+            commands.remove(command);
+            if (commands.isEmpty()) {
+                active.remove(playerId);
+            }
+        }
+    }
+
+    /**
+     * Cancels everything the player has in flight.
+     */
+    public void cancel(UUID playerId) {
+        Map<String, CancellationToken> commands;
+        synchronized (this) {
+            commands = active.remove(playerId);
+        }
+        if (commands != null) {
+            commands.values().forEach(CancellationToken::cancel);
+        }
+    }
+
+    public void cancelAll() {
+        List<CancellationToken> tokens = new ArrayList<>();
+        synchronized (this) {
+            active.values().forEach(commands -> tokens.addAll(commands.values()));
+            active.clear();
+        }
+        tokens.forEach(CancellationToken::cancel);
+    }
+
+    public synchronized int size() {
+        int count = 0;
+        for (Map<String, CancellationToken> commands : active.values()) {
+            count += commands.size();
+        }
+        return count;
+    }
+}
@@ -1,26 +1,61 @@
 package com.minecraft.devcommands.utils;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.minecraft.devcommands.DevCommandsPlugin;
 import com.minecraft.devcommands.api.GitHubClient;
 import com.minecraft.devcommands.api.JiraClient;
-import okhttp3.OkHttpClient;
+import com.minecraft.devcommands.api.JiraMirror;
+import com.minecraft.devcommands.cache.CodeSearchIndex;
+import com.minecraft.devcommands.cache.RepoTreeIndex;
+import com.minecraft.devcommands.cache.StaleCache;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.bukkit.entity.Player;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 public class ToolExecutor {
+    // Description budget for jira_view results, roughly 1,000 tokens
+    private static final int JIRA_VIEW_DESCRIPTION_CHARS = 4000;
+    // Tools that only read, and so can be answered from the last good result while their backend is down
+    private static final Set<String> READ_ONLY_TOOLS = Set.of(
+        "git_pr_list", "git_pr_review", "jira_list", "jira_view", "code_explain", "git_list_files", "git_search_code");
+
     private final DevCommandsPlugin plugin;
-    private final OkHttpClient httpClient;
 
     public ToolExecutor(DevCommandsPlugin plugin) {
         this.plugin = plugin;
-        this.httpClient = new OkHttpClient();
     }
 
+    /**
+     * Runs a tool and returns its human-readable output, as shown in books.
+     */
     public String executeTool(String toolName, JsonObject arguments, Player player) throws Exception {
+        return runTool(toolName, arguments, player).text;
+    }
+
+    /**
+     * Runs a tool and returns both its human-readable output and a compact
+     * JSON form holding only the fields a model needs.
+     */
+    public ToolResult runTool(String toolName, JsonObject arguments, Player player) throws Exception {
+        if (!READ_ONLY_TOOLS.contains(toolName)) {
+            return dispatch(toolName, arguments, player);
+        }
+
+        String scope = plugin.getConfig().getString("github.repository", "") + "|"
+            + plugin.getConfig().getString("jira.project-key", "") + "|" + arguments;
+        StaleCache.Result<ToolResult> result = plugin.getStaleCache().get(
+            "tool:" + toolName, scope, () -> dispatch(toolName, arguments, player));
+        return result.stale ? markStale(result) : result.value;
+    }
+
+    private ToolResult dispatch(String toolName, JsonObject arguments, Player player) throws Exception {
         switch (toolName) {
             case "git_pr_list":
                 return executeGitPrList();
@@ -42,10 +77,18 @@ public class ToolExecutor {
                 return executeJiraView(issueKey);
 
             case "jira_create":
+                // Like /jira-create, a started create isn't aborted by a newer /ai-chat or a quit
+                if (arguments.has("issues")) {
+                    JsonArray issues = arguments.getAsJsonArray("issues");
+                    return CancellationToken.detached(() -> executeJiraBulkCreate(issues));
+                }
+                if (!arguments.has("issue_type") || !arguments.has("summary")) {
+                    throw new Exception("jira_create needs either issue_type and summary, or an issues array");
+                }
                 String issueType = arguments.get("issue_type").getAsString();
                 String summary = arguments.get("summary").getAsString();
                 String description = arguments.has("description") ? arguments.get("description").getAsString() : "";
-                return executeJiraCreate(issueType, summary, description);
+                return CancellationToken.detached(() -> executeJiraCreate(issueType, summary, description));
 
             case "code_explain":
                 String filePath = arguments.get("file_path").getAsString();
@@ -64,18 +107,24 @@ public class ToolExecutor {
         }
     }
 
-    private String executeGitPrList() throws Exception {
+    private ToolResult executeGitPrList() throws Exception {
         GitHubClient github = plugin.getGitHubClient();
         var prs = github.listPullRequests();
 
         StringBuilder result = new StringBuilder("Open Pull Requests:\n\n");
+        JsonArray data = new JsonArray();
         for (var pr : prs) {
             result.append(String.format("#%d: %s by %s\n", pr.number, pr.title, pr.author));
+            JsonObject item = new JsonObject();
+            item.addProperty("number", pr.number);
+            item.addProperty("title", pr.title);
+            item.addProperty("author", pr.author);
+            data.add(item);
         }
-        return result.toString();
+        return new ToolResult(result.toString(), data);
     }
 
-    private String executeGitPrReview(String prNumber) throws Exception {
+    private ToolResult executeGitPrReview(String prNumber) throws Exception {
         GitHubClient github = plugin.getGitHubClient();
 
         // Get PR data
@@ -88,20 +137,32 @@ public class ToolExecutor {
         }
 
         // Format PR data for AI
-        return String.format(
+        String text = String.format(
             "PR #%d: %s\nAuthor: %s\nBranch: %s\nState: %s\nCreated: %s\nURL: %s\n\nDescription:\n%s",
             pr.number, pr.title, pr.author, pr.branch, pr.state, pr.createdAt, pr.url, pr.body != null ? pr.body : "(no description)"
         );
+
+        JsonObject data = new JsonObject();
+        data.addProperty("number", pr.number);
+        data.addProperty("title", pr.title);
+        data.addProperty("author", pr.author);
+        data.addProperty("branch", pr.branch);
+        data.addProperty("state", pr.state);
+        data.addProperty("description", pr.body != null ? pr.body : "");
+        return new ToolResult(text, data);
     }
 
-    private String executeGitSetRepo(String repository) {
+    private ToolResult executeGitSetRepo(String repository) {
         plugin.getConfig().set("github.repository", repository);
         plugin.saveConfig();
         plugin.reinitializeGitHubClients();
-        return "Repository changed to: " + repository;
+
+        JsonObject data = new JsonObject();
+        data.addProperty("repository", repository);
+        return new ToolResult("Repository changed to: " + repository, data);
     }
 
-    private String executeJiraList(String filter) throws Exception {
+    private ToolResult executeJiraList(String filter) throws Exception {
         JiraClient jira = plugin.getJiraClient();
         String jql;
 
@@ -119,76 +180,198 @@ public class ToolExecutor {
                 jql = "resolution = Unresolved ORDER BY updated DESC";
         }
 
-        var issues = jira.searchIssues(jql, 20);
+        JiraMirror mirror = plugin.getJiraMirror();
+        List<JiraClient.Issue> issues = mirror != null ? mirror.query(filter, 20) : null;
+        if (issues == null) {
+            issues = jira.searchIssues(jql, 20);
+        }
         StringBuilder result = new StringBuilder("Jira Issues:\n\n");
+        JsonArray data = new JsonArray();
         for (var issue : issues) {
             result.append(String.format("- %s: %s [%s]\n", issue.key, issue.summary, issue.status));
+            JsonObject item = new JsonObject();
+            item.addProperty("key", issue.key);
+            item.addProperty("summary", issue.summary);
+            item.addProperty("status", issue.status);
+            data.add(item);
         }
-        return result.toString();
+        return new ToolResult(result.toString(), data);
     }
 
-    private String executeJiraView(String issueKey) throws Exception {
+    private ToolResult executeJiraView(String issueKey) throws Exception {
         JiraClient jira = plugin.getJiraClient();
-        var issue = jira.getIssue(issueKey);
+        var issue = jira.getIssue(issueKey, JIRA_VIEW_DESCRIPTION_CHARS);
 
-        return String.format(
+        String text = String.format(
             "Issue: %s\nSummary: %s\nType: %s\nStatus: %s\nAssignee: %s\n\nDescription:\n%s",
             issue.key, issue.summary, issue.type, issue.status, issue.assignee, issue.description
         );
+
+        JsonObject data = new JsonObject();
+        data.addProperty("key", issue.key);
+        data.addProperty("summary", issue.summary);
+        data.addProperty("type", issue.type);
+        data.addProperty("status", issue.status);
+        data.addProperty("assignee", issue.assignee);
+        data.addProperty("description", issue.description);
+        return new ToolResult(text, data);
     }
 
-    private String executeJiraCreate(String issueType, String summary, String description) throws Exception {
+    private ToolResult executeJiraCreate(String issueType, String summary, String description) throws Exception {
         JiraClient jira = plugin.getJiraClient();
         var issue = jira.createIssue(summary, description, issueType);
 
-        return String.format("Created %s: %s\nKey: %s\nURL: %s", issue.type, issue.summary, issue.key, issue.url);
+        String text = String.format("Created %s: %s\nKey: %s\nURL: %s", issue.type, issue.summary, issue.key, issue.url);
+        return new ToolResult(text, createdIssue(issue));
     }
 
-    private String executeCodeExplain(String filePath) throws Exception {
-        // Fetch file content from GitHub
-        String githubToken = resolveConfigValue(plugin.getConfig().getString("github.token", ""));
-        String repository = plugin.getConfig().getString("github.repository", "");
-        String apiUrl = plugin.getConfig().getString("github.api-url", "https://api.github.com");
-
-        String url = String.format("%s/repos/%s/contents/%s", apiUrl, repository, filePath);
+    private static JsonObject createdIssue(JiraClient.Issue issue) {
+        JsonObject data = new JsonObject();
+        data.addProperty("key", issue.key);
+        data.addProperty("type", issue.type);
+        data.addProperty("summary", issue.summary);
+        return data;
+    }
 
-        Request request = new Request.Builder()
-            .url(url)
-            .header("Authorization", "Bearer " + githubToken)
-            .header("Accept", "application/vnd.github.v3.raw")
-            .build();
+    private ToolResult executeJiraBulkCreate(JsonArray issues) throws Exception {
+        List<JiraClient.NewIssue> newIssues = new ArrayList<>();
+        for (int i = 0; i < issues.size(); i++) {
+            JsonObject issue = issues.get(i).getAsJsonObject();
+            if (!issue.has("issue_type") || !issue.has("summary")) {
+                throw new Exception("Issue " + (i + 1) + " needs issue_type and summary");
+            }
+            newIssues.add(new JiraClient.NewIssue(
+                issue.get("summary").getAsString(),
+                issue.has("description") ? issue.get("description").getAsString() : "",
+                issue.get("issue_type").getAsString()
+            ));
+        }
+        if (newIssues.isEmpty()) {
+            throw new Exception("No issues to create");
+        }
 
-        String code;
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new Exception("Failed to fetch file: " + response.code() + " " + response.message());
+        JiraClient.BulkResult result = plugin.getJiraClient().createIssues(newIssues);
+        StringBuilder output = new StringBuilder(String.format("Created %d of %d issues:\n", result.created.size(), newIssues.size()));
+        for (var issue : result.created) {
+            output.append(String.format("- %s (%s): %s\n  %s\n", issue.key, issue.type, issue.summary, issue.url));
+        }
+        if (!result.errors.isEmpty()) {
+            output.append("\nFailed:\n");
+            for (String error : result.errors) {
+                output.append("- ").append(error).append("\n");
             }
-            code = response.body().string();
         }
 
+        JsonObject data = new JsonObject();
+        JsonArray created = new JsonArray();
+        for (var issue : result.created) {
+            created.add(createdIssue(issue));
+        }
+        JsonArray errors = new JsonArray();
+        result.errors.forEach(errors::add);
+        data.add("created", created);
+        data.add("errors", errors);
+        return new ToolResult(output.toString(), data);
+    }
+
+    private ToolResult executeCodeExplain(String filePath) throws Exception {
+        // Fetch file content from GitHub (served from the content cache when unchanged)
+        String code = plugin.getGitHubClient().getFile(filePath).content;
+
         // Truncate if too long
         if (code.length() > 3000) {
             code = code.substring(0, 3000) + "\n... (truncated) ...";
         }
 
-        return String.format("File: %s\n\nCode:\n%s", filePath, code);
+        JsonObject data = new JsonObject();
+        data.addProperty("path", filePath);
+        data.addProperty("code", code);
+        return new ToolResult(String.format("File: %s\n\nCode:\n%s", filePath, code), data);
     }
 
-    private String executeGitListFiles(String path) throws Exception {
-        // Fetch directory listing from GitHub
-        String githubToken = resolveConfigValue(plugin.getConfig().getString("github.token", ""));
+    private ToolResult executeGitListFiles(String path) throws Exception {
+        GitHubClient github = plugin.getGitHubClient();
         String repository = plugin.getConfig().getString("github.repository", "");
-        String apiUrl = plugin.getConfig().getString("github.api-url", "https://api.github.com");
 
         // Clean up path - remove leading/trailing slashes
-        path = path.trim();
-        if (path.startsWith("/")) {
-            path = path.substring(1);
+        path = GitHubClient.normalizePath(path);
+
+        // Separate directories and files
+        java.util.List<String> directories = new java.util.ArrayList<>();
+        java.util.List<String> files = new java.util.ArrayList<>();
+        java.util.List<String> fileNames = new java.util.ArrayList<>();
+
+        RepoTreeIndex index = null;
+        try {
+            index = github.getTreeIndex();
+        } catch (java.io.IOException e) {
+            plugin.getLogger().warning("Tree index unavailable, listing via Contents API: " + e.getMessage());
+        }
+
+        if (index != null && !index.isTruncated()) {
+            // Answer locally from the whole-tree index
+            RepoTreeIndex.Node dir = index.find(path);
+            if (dir == null || !dir.isDirectory()) {
+                throw new Exception(GitHubClient.notFoundMessage("Directory", path, index));
+            }
+            for (RepoTreeIndex.Node child : dir.getChildren()) {
+                if (child.isDirectory()) {
+                    directories.add(child.name);
+                } else {
+                    files.add(String.format("%s (%s)", child.name, formatSize(child.size)));
+                    fileNames.add(child.name);
+                }
+            }
+        } else {
+            listFilesRemote(path, directories, files, fileNames);
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("Repository: %s\n", repository));
+        result.append(String.format("Path: /%s\n\n", path.isEmpty() ? "" : path));
+        result.append("Files and Directories:\n\n");
+
+        // List directories first
+        if (!directories.isEmpty()) {
+            result.append("📁 Directories:\n");
+            for (String dir : directories) {
+                result.append(String.format("  %s/\n", dir));
+            }
+            result.append("\n");
+        }
+
+        // Then files
+        if (!files.isEmpty()) {
+            result.append("📄 Files:\n");
+            for (String file : files) {
+                result.append(String.format("  %s\n", file));
+            }
         }
-        if (path.endsWith("/")) {
-            path = path.substring(0, path.length() - 1);
+
+        if (directories.isEmpty() && files.isEmpty()) {
+            result.append("(empty directory)\n");
         }
 
+        JsonObject data = new JsonObject();
+        data.addProperty("path", "/" + path);
+        data.add("directories", toJsonArray(directories));
+        data.add("files", toJsonArray(fileNames));
+        return new ToolResult(result.toString(), data);
+    }
+
+    private static JsonArray toJsonArray(List<String> values) {
+        JsonArray array = new JsonArray();
+        values.forEach(array::add);
+        return array;
+    }
+
+    private void listFilesRemote(String path, java.util.List<String> directories, java.util.List<String> files,
+                                 java.util.List<String> fileNames) throws Exception {
+        // Fetch directory listing from GitHub
+        String githubToken = resolveConfigValue(plugin.getConfig().getString("github.token", ""));
+        String repository = plugin.getConfig().getString("github.repository", "");
+        String apiUrl = plugin.getConfig().getString("github.api-url", "https://api.github.com");
+
         String url = String.format("%s/repos/%s/contents/%s", apiUrl, repository, path);
 
         Request request = new Request.Builder()
@@ -198,9 +381,9 @@ public class ToolExecutor {
             .build();
 
         String responseBody;
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = plugin.getGitHubClient().getHttpClient().newCall(request).execute()) {
             if (!response.isSuccessful()) {
-                throw new Exception("Failed to list files: " + response.code() + " " + response.message());
+                throw new IOException("Failed to list files: " + response.code() + " " + response.message());
             }
             responseBody = response.body().string();
         }
@@ -209,15 +392,6 @@ public class ToolExecutor {
         com.google.gson.Gson gson = new com.google.gson.Gson();
         com.google.gson.JsonArray items = gson.fromJson(responseBody, com.google.gson.JsonArray.class);
 
-        StringBuilder result = new StringBuilder();
-        result.append(String.format("Repository: %s\n", repository));
-        result.append(String.format("Path: /%s\n\n", path.isEmpty() ? "" : path));
-        result.append("Files and Directories:\n\n");
-
-        // Separate directories and files
-        java.util.List<String> directories = new java.util.ArrayList<>();
-        java.util.List<String> files = new java.util.ArrayList<>();
-
         for (int i = 0; i < items.size(); i++) {
             com.google.gson.JsonObject item = items.get(i).getAsJsonObject();
             String name = item.get("name").getAsString();
@@ -227,44 +401,33 @@ public class ToolExecutor {
             if ("dir".equals(type)) {
                 directories.add(name);
             } else {
-                // Format file size
-                String sizeStr;
-                if (size < 1024) {
-                    sizeStr = size + "B";
-                } else if (size < 1024 * 1024) {
-                    sizeStr = (size / 1024) + "KB";
-                } else {
-                    sizeStr = (size / (1024 * 1024)) + "MB";
-                }
-                files.add(String.format("%s (%s)", name, sizeStr));
+                files.add(String.format("%s (%s)", name, formatSize(size)));
+                fileNames.add(name);
             }
         }
+    }
 
-        // List directories first
-        if (!directories.isEmpty()) {
-            result.append("📁 Directories:\n");
-            for (String dir : directories) {
-                result.append(String.format("  %s/\n", dir));
-            }
-            result.append("\n");
+    private static String formatSize(long size) {
+        if (size < 1024) {
+            return size + "B";
+        } else if (size < 1024 * 1024) {
+            return (size / 1024) + "KB";
+        } else {
+            return (size / (1024 * 1024)) + "MB";
         }
+    }
 
-        // Then files
-        if (!files.isEmpty()) {
-            result.append("📄 Files:\n");
-            for (String file : files) {
-                result.append(String.format("  %s\n", file));
+    private ToolResult executeGitSearchCode(String query) throws Exception {
+        CodeSearchIndex searchIndex = plugin.getCodeSearchIndex();
+        if (searchIndex != null) {
+            // Keep the local index on the current head; this query uses whatever is built now
+            searchIndex.requestRefresh(plugin.getGitHubClient());
+            CodeSearchIndex.Result local = searchIndex.search(query, 10);
+            if (local != null) {
+                return formatLocalSearch(query, searchIndex.getRepository(), local);
             }
         }
 
-        if (directories.isEmpty() && files.isEmpty()) {
-            result.append("(empty directory)\n");
-        }
-
-        return result.toString();
-    }
-
-    private String executeGitSearchCode(String query) throws Exception {
         // Search code in GitHub repository
         String githubToken = resolveConfigValue(plugin.getConfig().getString("github.token", ""));
         String repository = plugin.getConfig().getString("github.repository", "");
@@ -281,9 +444,9 @@ public class ToolExecutor {
             .build();
 
         String responseBody;
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = plugin.getGitHubClient().getHttpClient().newCall(request).execute()) {
             if (!response.isSuccessful()) {
-                throw new Exception("Failed to search code: " + response.code() + " " + response.message());
+                throw new IOException("Failed to search code: " + response.code() + " " + response.message());
             }
             responseBody = response.body().string();
         }
@@ -295,6 +458,7 @@ public class ToolExecutor {
         int totalCount = jsonResponse.get("total_count").getAsInt();
         com.google.gson.JsonArray items = jsonResponse.getAsJsonArray("items");
 
+        JsonArray matches = new JsonArray();
         StringBuilder result = new StringBuilder();
         result.append(String.format("Code Search: '%s'\n", query));
         result.append(String.format("Repository: %s\n", repository));
@@ -316,6 +480,9 @@ public class ToolExecutor {
                 String htmlUrl = item.get("html_url").getAsString();
 
                 result.append(String.format("%d. %s\n", i + 1, path));
+                JsonObject match = new JsonObject();
+                match.addProperty("path", path);
+                matches.add(match);
 
                 // Get text matches if available
                 if (item.has("text_matches") && !item.get("text_matches").isJsonNull()) {
@@ -329,6 +496,7 @@ public class ToolExecutor {
                                 ? fragment.substring(0, 150).trim() + "..."
                                 : fragment.trim();
                             result.append(String.format("   Preview: %s\n", preview.replaceAll("\n", " ")));
+                            match.addProperty("preview", preview.replaceAll("\n", " "));
                         }
                     }
                 }
@@ -341,7 +509,83 @@ public class ToolExecutor {
             }
         }
 
-        return result.toString();
+        return new ToolResult(result.toString(), searchData(query, totalCount, matches));
+    }
+
+    private static JsonObject searchData(String query, int totalCount, JsonArray matches) {
+        JsonObject data = new JsonObject();
+        data.addProperty("query", query);
+        data.addProperty("total", totalCount);
+        data.add("matches", matches);
+        return data;
+    }
+
+    private ToolResult formatLocalSearch(String query, String repository, CodeSearchIndex.Result local) {
+        String apiUrl = plugin.getConfig().getString("github.api-url", "https://api.github.com");
+        String webUrl = apiUrl.contains("api.github.com") ? "https://github.com" : apiUrl.replaceAll("/api/v3/?$", "");
+
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("Code Search: '%s'\n", query));
+        result.append(String.format("Repository: %s (local index @ %s)\n", repository, local.commit.substring(0, 7)));
+        result.append(String.format("Found %d match%s\n\n", local.totalCount, local.totalCount == 1 ? "" : "es"));
+
+        if (local.hits.isEmpty()) {
+            result.append("No matches found.\n");
+            result.append("\nTry:\n");
+            result.append("- Using different keywords\n");
+            result.append("- Searching for class/function names\n");
+            result.append("- Filtering by file type (e.g., 'extension:java')\n");
+            return new ToolResult(result.toString(), searchData(query, local.totalCount, new JsonArray()));
+        }
+
+        result.append("Matches:\n\n");
+        JsonArray matches = new JsonArray();
+        for (int i = 0; i < local.hits.size(); i++) {
+            CodeSearchIndex.Hit hit = local.hits.get(i);
+            JsonObject match = new JsonObject();
+            match.addProperty("path", hit.lineNumber > 0 ? hit.path + ":" + hit.lineNumber : hit.path);
+            result.append(String.format("%d. %s%s\n", i + 1, hit.path, hit.lineNumber > 0 ? ":" + hit.lineNumber : ""));
+            if (!hit.line.isEmpty()) {
+                String preview = hit.line.length() > 150 ? hit.line.substring(0, 150).trim() + "..." : hit.line;
+                result.append(String.format("   Preview: %s\n", preview));
+                match.addProperty("preview", preview);
+            }
+            matches.add(match);
+            result.append(String.format("   URL: %s/%s/blob/%s/%s%s\n", webUrl, repository, local.commit, hit.path,
+                hit.lineNumber > 0 ? "#L" + hit.lineNumber : ""));
+            result.append("\n");
+        }
+
+        if (local.totalCount > local.hits.size()) {
+            result.append(String.format("... and %d more matches\n", local.totalCount - local.hits.size()));
+        }
+        return new ToolResult(result.toString(), searchData(query, local.totalCount, matches));
+    }
+
+    /**
+     * Labels a last-known-good result so neither the player nor the model
+     * takes it for current data.
+     */
+    private static ToolResult markStale(StaleCache.Result<ToolResult> result) {
+        JsonObject data = new JsonObject();
+        data.addProperty("stale_as_of", StaleCache.formatTime(result.fetchedAt));
+        data.add("result", result.value.data);
+        String text = "(Backend unavailable; " + result.staleMarker() + ")\n" + result.value.text;
+        return new ToolResult(text, data);
+    }
+
+    /**
+     * A tool's output twice over: {@code text} for players, {@code data} with
+     * just the essential fields for feeding back to the model.
+     */
+    public static class ToolResult {
+        public final String text;
+        public final JsonElement data;
+
+        public ToolResult(String text, JsonElement data) {
+            this.text = text;
+            this.data = data;
+        }
     }
 
     private String resolveConfigValue(String value) {
@@ -0,0 +1,166 @@
+package com.minecraft.devcommands.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.minecraft.devcommands.api.ToolSelector;
+import com.minecraft.devcommands.api.VLLMClient;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Turns tool results into what goes back to the model: the compact JSON form
+ * instead of the formatted text, held under a per-tool token budget. Results
+ * over budget are condensed by the model against the player's question, or
+ * trimmed field by field when that is off or fails.
+ */
+public class ToolResultCompactor {
+    // Rough, tokenizer-independent estimate; JSON and code run about 4 chars a token
+    private static final int CHARS_PER_TOKEN = 4;
+    // How much oversized input the summarizer gets to read, relative to the budget
+    private static final int SUMMARY_INPUT_FACTOR = 8;
+    private static final int MAX_TRIM_PASSES = 64;
+    private static final String ELLIPSIS = "...";
+
+    private final int defaultMaxTokens;
+    private final Map<String, Integer> toolMaxTokens;
+    private final boolean summarize;
+    private final Logger logger;
+    // Code is full of < > = that would otherwise cost six characters each
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
+    public ToolResultCompactor(int defaultMaxTokens, Map<String, Integer> toolMaxTokens, boolean summarize,
+                               Logger logger) {
+        this.defaultMaxTokens = defaultMaxTokens;
+        this.toolMaxTokens = toolMaxTokens;
+        this.summarize = summarize;
+        this.logger = logger;
+    }
+
+    public int maxTokens(String tool) {
+        return toolMaxTokens.getOrDefault(tool, defaultMaxTokens);
+    }
+
+    public static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * The result as it should appear in a follow-up prompt for {@code question}.
+     */
+    public String compact(String tool, ToolExecutor.ToolResult result, String question, VLLMClient vllm) {
+        JsonElement data = result.data != null ? result.data : new JsonPrimitive(result.text);
+        String json = gson.toJson(data);
+        int maxTokens = maxTokens(tool);
+        if (estimateTokens(json) <= maxTokens) {
+            return json;
+        }
+
+        int maxChars = maxTokens * CHARS_PER_TOKEN;
+        if (summarize && vllm != null) {
+            String input = gson.toJson(trim(data, maxChars * SUMMARY_INPUT_FACTOR));
+            String prompt = String.format(
+                "Condense this '%s' tool output to only what is needed to answer the question, in at most %d words. " +
+                "Keep keys, numbers, names and paths exactly as written. Reply with the condensed facts only.\n\n" +
+                "Question: %s\n\nTool output:\n%s",
+                tool, maxTokens * 3 / 4, question, input
+            );
+            try {
+                String summary = vllm.chat(prompt, ToolSelector.NONE, VLLMClient.Phase.SUMMARY).trim();
+                if (!summary.isEmpty()) {
+                    return summary.length() > maxChars
+                        ? summary.substring(0, maxChars - ELLIPSIS.length()) + ELLIPSIS
+                        : summary;
+                }
+            } catch (IOException e) {
+                logger.warning("Could not summarize " + tool + " result, trimming instead: " + e.getMessage());
+            }
+        }
+        return gson.toJson(trim(data, maxChars));
+    }
+
+    /**
+     * Shrinks the largest field again and again until the JSON fits: long
+     * strings are cut and long arrays lose their tail, with a count of what
+     * was dropped left in {@code <field>_omitted}.
+     */
+    JsonElement trim(JsonElement data, int maxChars) {
+        JsonObject root;
+        if (data.isJsonObject()) {
+            root = data.deepCopy().getAsJsonObject();
+        } else {
+            root = new JsonObject();
+            root.add(data.isJsonArray() ? "items" : "value", data.deepCopy());
+        }
+
+        for (int pass = 0; pass < MAX_TRIM_PASSES; pass++) {
+            int over = gson.toJson(root).length() - maxChars;
+            if (over <= 0 || !shrinkLargest(root, over)) {
+                break;
+            }
+        }
+        return root;
+    }
+
+    private boolean shrinkLargest(JsonObject object, int over) {
+        String largest = null;
+        int largestSize = 0;
+        for (Map.Entry<String, JsonElement> member : object.entrySet()) {
+            JsonElement value = member.getValue();
+            if (value.isJsonNull() || (value.isJsonPrimitive() && !value.getAsJsonPrimitive().isString())) {
+                continue;
+            }
+            int size = gson.toJson(value).length();
+            if (size > largestSize) {
+                largest = member.getKey();
+                largestSize = size;
+            }
+        }
+        if (largest == null) {
+            return false;
+        }
+
+        JsonElement value = object.get(largest);
+        if (value.isJsonObject()) {
+            return shrinkLargest(value.getAsJsonObject(), over);
+        }
+        if (value.isJsonArray()) {
+            JsonArray array = value.getAsJsonArray();
+            if (array.size() == 0) {
+                return false;
+            }
+            int freed = 0;
+            int removed = 0;
+            while (array.size() > 1 && freed < over) {
+                freed += gson.toJson(array.remove(array.size() - 1)).length() + 1;
+                removed++;
+            }
+            if (removed == 0) {
+                // A single oversized element: shrink inside it instead
+                JsonElement only = array.get(0);
+                if (only.isJsonObject()) {
+                    return shrinkLargest(only.getAsJsonObject(), over);
+                }
+                array.remove(0);
+                removed = 1;
+            }
+            String omitted = largest + "_omitted";
+            int already = object.has(omitted) ? object.get(omitted).getAsInt() : 0;
+            object.addProperty(omitted, already + removed);
+            return true;
+        }
+
+        String text = value.getAsString();
+        if (text.length() <= ELLIPSIS.length()) {
+            return false;
+        }
+        int keep = Math.max(0, text.length() - over - ELLIPSIS.length());
+        object.addProperty(largest, text.substring(0, keep) + ELLIPSIS);
+        return true;
+    }
+}